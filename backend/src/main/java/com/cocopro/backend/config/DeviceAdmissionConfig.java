@@ -0,0 +1,27 @@
+package com.cocopro.backend.config;
+
+import com.cocopro.backend.service.DeviceAdmissionService;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class DeviceAdmissionConfig {
+
+    // Only device ingest paths; dashboards and operator APIs are never throttled
+    @Bean
+    public FilterRegistrationBean<DeviceAdmissionFilter> deviceAdmissionFilter(DeviceAdmissionService admissionService) {
+        FilterRegistrationBean<DeviceAdmissionFilter> registration =
+                new FilterRegistrationBean<>(new DeviceAdmissionFilter(admissionService));
+        registration.addUrlPatterns(
+                "/api/sensor-data/save",
+                "/api/sensor-data/batch",
+                "/api/sensor-data/device/sync",
+                "/api/color-data/save",
+                "/api/color-data/batch");
+        // Ahead of the security filter chain, so refused requests cost next to nothing
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,65 @@
+package com.cocopro.backend.config;
+
+import com.cocopro.backend.service.DeviceAdmissionService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects device posts over their rate or beyond the device bulkhead with 429 and a
+ * Retry-After header, before security, body parsing or any database work. Devices are told
+ * apart by an X-Device-Id header (the dryer firmware sends its device id), falling
+ * back to the remote address for clients that send none.
+ */
+public class DeviceAdmissionFilter extends OncePerRequestFilter {
+
+    static final String DEVICE_ID_HEADER = "X-Device-Id";
+
+    private final DeviceAdmissionService admissionService;
+
+    public DeviceAdmissionFilter(DeviceAdmissionService admissionService) {
+        this.admissionService = admissionService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !admissionService.isEnabled() || !"POST".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String deviceKey = request.getHeader(DEVICE_ID_HEADER);
+        if (deviceKey == null || deviceKey.isBlank()) {
+            deviceKey = request.getRemoteAddr();
+        }
+
+        long waitNanos = admissionService.admit(deviceKey);
+        if (waitNanos > 0) {
+            reject(response, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            return;
+        }
+        if (!admissionService.enter()) {
+            reject(response, 1000);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            admissionService.exit();
+        }
+    }
+
+    private static void reject(HttpServletResponse response, long retryAfterMillis) {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        // Retry-After only takes whole seconds
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (retryAfterMillis + 999) / 1000)));
+    }
+}
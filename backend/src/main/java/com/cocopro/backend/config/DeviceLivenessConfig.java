@@ -0,0 +1,28 @@
+package com.cocopro.backend.config;
+
+import com.cocopro.backend.service.DeviceLivenessService;
+import com.cocopro.backend.service.DeviceSequenceService;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class DeviceLivenessConfig implements WebMvcConfigurer {
+
+    private final DeviceLivenessService livenessService;
+
+    public DeviceLivenessConfig(DeviceLivenessService livenessService) {
+        this.livenessService = livenessService;
+    }
+
+    // Only body-less endpoints the ESP32s call; dashboard reads must not keep a silent device "online".
+    // /save, /batch and /device/sync name the device in the body and are recorded by SensorService and ColorDataService.
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new DeviceLivenessInterceptor(livenessService, DeviceSequenceService.SENSOR))
+                .addPathPatterns(
+                        "/api/sensor-data/status",
+                        "/api/sensor-data/MotorIR-status",
+                        "/api/sensor-data/device/commands");
+    }
+}
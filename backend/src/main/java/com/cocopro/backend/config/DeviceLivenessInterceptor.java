@@ -0,0 +1,35 @@
+package com.cocopro.backend.config;
+
+import com.cocopro.backend.model.SensorData;
+import com.cocopro.backend.service.DeviceLivenessService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Marks the calling device as alive on device requests that carry no body. The device is
+ * named by the deviceId query parameter, the same name the control registry and ingest use;
+ * without one it is the default device of its stream. X-Device-Id identifies the board for
+ * rate limiting only. Posts with a reading in the body are recorded by the ingest path
+ * instead, under the deviceId the body names.
+ */
+public class DeviceLivenessInterceptor implements HandlerInterceptor {
+
+    private final DeviceLivenessService livenessService;
+    private final String stream;
+
+    public DeviceLivenessInterceptor(DeviceLivenessService livenessService, String stream) {
+        this.livenessService = livenessService;
+        this.stream = stream;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String deviceId = request.getParameter("deviceId");
+        if (deviceId == null || deviceId.isBlank()) {
+            deviceId = SensorData.DEFAULT_DEVICE_ID;
+        }
+        livenessService.touch(stream, deviceId);
+        return true;
+    }
+}
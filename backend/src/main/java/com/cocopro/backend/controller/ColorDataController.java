@@ -1,40 +1,132 @@
 package com.cocopro.backend.controller;
 
+import com.cocopro.backend.dto.ColorBatchResult;
+import com.cocopro.backend.dto.ColorClassifierConfig;
+import com.cocopro.backend.dto.ColorStats;
 import com.cocopro.backend.model.ColorData;
-import com.cocopro.backend.repository.ColorDataRepository;
+import com.cocopro.backend.model.ColorTransition;
+import com.cocopro.backend.model.RollupResolution;
+import com.cocopro.backend.model.SensorData;
+import com.cocopro.backend.service.ColorClassifier;
+import com.cocopro.backend.service.ColorDataService;
+import com.cocopro.backend.service.ColorRollupService;
+import com.cocopro.backend.service.ColorStateProcessor;
+import com.cocopro.backend.service.LatestSnapshotService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/color-data")
 @CrossOrigin("http://localhost:5173") // or set to your frontend URL
 public class ColorDataController {
 
     @Autowired
-    private ColorDataRepository repository;
+    private ColorDataService colorDataService;
+
+    @Autowired
+    private ColorClassifier colorClassifier;
+
+    @Autowired
+    private LatestSnapshotService latestSnapshotService;
+
+    @Autowired
+    private ColorStateProcessor colorStateProcessor;
+
+    @Autowired
+    private ColorRollupService colorRollupService;
 
     @PostMapping("/save")
     public ResponseEntity<String> saveColorData(@RequestBody ColorData colorData) {
-        int diffRG = Math.abs(colorData.getRed() - colorData.getGreen());
-        int diffRB = Math.abs(colorData.getRed() - colorData.getBlue());
-        int diffGB = Math.abs(colorData.getGreen() - colorData.getBlue());
+        String colorClass = colorDataService.save(colorData);
+        return ResponseEntity.ok(ColorClassifier.BLACK.equals(colorClass) ? "Black detected!" : "Not black");
+    }
 
-        boolean isBlack = colorData.getRed() > 200 &&
-                colorData.getGreen() > 200 &&
-                colorData.getBlue() > 200 &&
-                (diffRG > 50 || diffRB > 50 || diffGB > 50);
+    // Classifies and stores many samples in one call; the response lists each sample's class in request order
+    @PostMapping("/batch")
+    public ResponseEntity<ColorBatchResult> saveColorBatch(@RequestBody List<ColorData> samples) {
+        if (samples.size() > ColorDataService.MAX_BATCH_SIZE) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        return ResponseEntity.ok(colorDataService.saveBatch(samples));
+    }
 
-        colorData.setBlackDetected(isBlack);
-        repository.save(colorData);
+    // Answered from a pre-serialized snapshot kept current by /save, no query or serialization per poll
+    @GetMapping("/latest")
+    public ResponseEntity<byte[]> getLatestData(
+            @RequestParam(defaultValue = SensorData.DEFAULT_DEVICE_ID) String deviceId) {
+        byte[] latest = latestSnapshotService.color(deviceId);
+        if (latest == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(latest);
+    }
 
-        return ResponseEntity.ok(isBlack ? "Black detected!" : "Not black");
+    // Debounced state changes, which replace the per-sample rows; defaults to the last 24 hours
+    @GetMapping("/transitions")
+    public ResponseEntity<List<ColorTransition>> getTransitions(
+            @RequestParam(defaultValue = SensorData.DEFAULT_DEVICE_ID) String deviceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusHours(24);
+        return ResponseEntity.ok(colorStateProcessor.transitions(deviceId, start, end));
     }
 
-    @GetMapping("/latest")
-    public ResponseEntity<ColorData> getLatestData() {
-        return ResponseEntity.of(repository.findAll(Sort.by(Sort.Direction.DESC, "timestamp")).stream().findFirst());
+    // Per-minute sample counts by class, from memory; covers at most the last day
+    @GetMapping("/counts")
+    public ResponseEntity<List<Map<String, Object>>> getCounts(
+            @RequestParam(defaultValue = SensorData.DEFAULT_DEVICE_ID) String deviceId,
+            @RequestParam(defaultValue = "60") int minutes) {
+        int clamped = Math.max(1, Math.min(minutes, 24 * 60));
+        return ResponseEntity.ok(colorStateProcessor.recentCounts(deviceId, clamped));
     }
-}
 
+    // Class counts, reject rate and RGB histograms per bucket, read from rollups rather than raw samples
+    @GetMapping("/stats")
+    public ResponseEntity<ColorStats> getStats(
+            @RequestParam(defaultValue = "HOUR") RollupResolution bucket,
+            @RequestParam(defaultValue = SensorData.DEFAULT_DEVICE_ID) String deviceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "16") int bins) {
+        if (to == null) {
+            to = LocalDateTime.now();
+        }
+        if (from == null) {
+            from = to.minus(bucket.getDefaultRange());
+        }
+        if (from.isAfter(to) || bins < 1 || bins > 256) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(colorRollupService.stats(deviceId, bucket, from, to, bins));
+    }
+
+    @GetMapping("/states")
+    public ResponseEntity<Map<String, Object>> getStates() {
+        return ResponseEntity.ok(Map.of("states", colorStateProcessor.getStates(), "stats", colorStateProcessor.getStats()));
+    }
+
+    @GetMapping("/classifier")
+    public ResponseEntity<ColorClassifierConfig> getClassifier() {
+        return ResponseEntity.ok(colorClassifier.getConfig());
+    }
+
+    // Replaces the class rules and calibration; the lookup table is rebuilt before this returns
+    @PutMapping("/classifier")
+    public ResponseEntity<String> updateClassifier(@RequestBody ColorClassifierConfig config) {
+        try {
+            colorClassifier.update(config);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.ok("Color classifier updated");
+    }
+}
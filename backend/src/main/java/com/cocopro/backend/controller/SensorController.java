@@ -1,94 +1,390 @@
 package com.cocopro.backend.controller;
 
 
+import com.cocopro.backend.dto.DeviceSyncResponse;
+import com.cocopro.backend.dto.SensorBatchResult;
+import com.cocopro.backend.model.DeviceCommand;
+import com.cocopro.backend.model.RollupResolution;
 import com.cocopro.backend.model.SensorData;
+import com.cocopro.backend.model.SensorRollup;
 import com.cocopro.backend.repository.SensorDataRepository;
+import com.cocopro.backend.service.DeviceAdmissionService;
+import com.cocopro.backend.service.DeviceCommandService;
+import com.cocopro.backend.service.DeviceControlRegistry;
+import com.cocopro.backend.service.DeviceLivenessEvent;
+import com.cocopro.backend.service.DeviceLivenessService;
+import com.cocopro.backend.service.DeviceSequenceService;
+import com.cocopro.backend.service.SensorDownsampler;
+import com.cocopro.backend.service.LatestSnapshotService;
+import com.cocopro.backend.service.SensorHistoryService;
+import com.cocopro.backend.service.SensorArchiveService;
+import com.cocopro.backend.service.SensorDeadbandFilter;
+import com.cocopro.backend.service.SensorExportService;
+import com.cocopro.backend.service.SensorRollupService;
+import com.cocopro.backend.service.SensorRuleEngine;
+import com.cocopro.backend.service.SensorSeries;
+import com.cocopro.backend.service.SensorService;
+import com.cocopro.backend.service.SensorSketchService;
+import com.cocopro.backend.service.SensorStreamService;
+import com.cocopro.backend.service.SerialCommunicationService;
+import com.cocopro.backend.service.SensorWriteBehindService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/sensor-data")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = "X-Next-Cursor")
 public class SensorController {
 
+    private static final long MIN_COMMAND_POLL_MS = 1000;
+    private static final long MAX_COMMAND_POLL_MS = 30000;
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 5000;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private SensorDataRepository sensorDataRepository;
 
+    @Autowired
+    private SensorService sensorService;
+
+    @Autowired
+    private SensorWriteBehindService writeBehindService;
+
+    @Autowired
+    private SensorDeadbandFilter sensorDeadbandFilter;
+
+    @Autowired
+    private DeviceSequenceService deviceSequenceService;
+
+    @Autowired
+    private DeviceAdmissionService deviceAdmissionService;
+
+    @Autowired
+    private DeviceLivenessService deviceLivenessService;
+
+    @Autowired
+    private SensorExportService sensorExportService;
+
+    @Autowired
+    private SensorHistoryService sensorHistoryService;
+
+    @Autowired
+    private LatestSnapshotService latestSnapshotService;
+
+    @Autowired
+    private SensorArchiveService sensorArchiveService;
+
+    @Autowired
+    private SensorRuleEngine sensorRuleEngine;
+
+    @Autowired
+    private SensorRollupService sensorRollupService;
+
+    @Autowired
+    private SensorSketchService sensorSketchService;
+
+    @Autowired
+    private SensorStreamService sensorStreamService;
+
+    @Autowired
+    private DeviceCommandService deviceCommandService;
+
+    @Autowired
+    private DeviceControlRegistry deviceControlRegistry;
+
+    @Autowired
+    private SerialCommunicationService serialCommunicationService;
+
     @PostMapping("/save")
     public ResponseEntity<String> receiveSensorData(@RequestBody SensorData sensorData) {
-        if (sensorData.getTemperature() == 0 && sensorData.getHumidity() == 0) {
-            return ResponseEntity.badRequest().body("Invalid sensor data");
+        String reason = sensorService.validate(sensorData);
+        if (reason != null) {
+            return ResponseEntity.badRequest().body(reason);
+        }
+        if (!sensorService.ingest(sensorData)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Sensor ingest queue is full");
+        }
+        return ResponseEntity.accepted().body("Sensor data accepted");
+    }
+
+    // Buffered readings from a device, each carrying its own device-side timestamp
+    @PostMapping("/batch")
+    public ResponseEntity<SensorBatchResult> receiveSensorBatch(@RequestBody List<SensorData> readings) {
+        if (readings.size() > sensorService.getMaxBatchSize()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        return ResponseEntity.ok(sensorService.saveBatch(readings));
+    }
+
+    // Queue depth, drop counts and flush latency of the write-behind pipeline
+    @GetMapping("/ingest-stats")
+    public ResponseEntity<Map<String, Object>> getIngestStats() {
+        Map<String, Object> stats = writeBehindService.getStats();
+        stats.put("streamSubscribers", sensorStreamService.getSubscriberCount());
+        stats.put("streamEvicted", sensorStreamService.getEvictedCount());
+        stats.put("serialPorts", serialCommunicationService.getStats());
+        stats.put("deadband", sensorDeadbandFilter.getStats());
+        stats.put("sequences", deviceSequenceService.getStats());
+        stats.put("archive", sensorArchiveService.getStats());
+        stats.put("ruleMatches", sensorRuleEngine.getStats());
+        stats.put("admission", deviceAdmissionService.getStats());
+        stats.put("liveness", deviceLivenessService.getStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    // Live readings pushed as Server-Sent Events; coalesce=true sends at most one reading per device per tick
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamSensorData(
+            @RequestParam(required = false) String deviceId,
+            @RequestParam(defaultValue = "false") boolean coalesce) {
+        SseEmitter emitter = sensorStreamService.subscribe(deviceId, coalesce);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         }
-        sensorDataRepository.save(sensorData);
-        return ResponseEntity.ok("Sensor data saved successfully");
+        return ResponseEntity.ok(emitter);
     }
 
+    // One page of readings in id order; pass the X-Next-Cursor header back as afterId for the next page
     @GetMapping("/get")
-    public ResponseEntity<List<SensorData>> getSensorData() {
-        return ResponseEntity.ok(sensorDataRepository.findAll());
+    public ResponseEntity<List<SensorData>> getSensorData(
+            @RequestParam(defaultValue = "0") long afterId,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<SensorData> page = sensorDataRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize));
+        if (page.size() < pageSize) {
+            return ResponseEntity.ok(page);
+        }
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getId()))
+                .body(page);
     }
 
+    // Full history as a single JSON array, streamed from a database cursor
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void exportSensorData(@RequestParam(defaultValue = "0") long afterId,
+                                 HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"sensor-data.json\"");
+        sensorExportService.exportAll(afterId, response.getOutputStream());
+    }
+
+    // Polled constantly by dashboards: answered from a pre-serialized snapshot, no query or serialization
     @GetMapping("/latest")
-    public ResponseEntity<SensorData> getLatestSensorData() {
-        SensorData latest = sensorDataRepository.findTopByOrderByIdDesc();
-        return ResponseEntity.ok(latest);
+    public ResponseEntity<byte[]> getLatestSensorData(
+            @RequestParam(defaultValue = SensorData.DEFAULT_DEVICE_ID) String deviceId) {
+        byte[] latest = latestSnapshotService.sensor(deviceId);
+        if (latest == null) {
+            return ResponseEntity.ok().build();
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(latest);
     }
 
-    // New endpoint to fetch historical moisture data
+    // Historical moisture data: the last five hours from the in-memory window, or from/to from the compressed archive;
+    // points=N downsamples to at most N readings for charting
     @GetMapping("/moisture")
-    public ResponseEntity<List<SensorData>> getMoistureData() {
-        LocalDateTime fiveHoursAgo = LocalDateTime.now().minusHours(5);
-        List<SensorData> moistureData = sensorDataRepository.findByTimestampAfterOrderByTimestampAsc(fiveHoursAgo);
+    public ResponseEntity<List<SensorData>> getMoistureData(
+            @RequestParam(defaultValue = SensorData.DEFAULT_DEVICE_ID) String deviceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer points) {
+        SensorSeries series = history(deviceId, from, to);
+        if (points != null) {
+            series = SensorDownsampler.moisture(series, Math.min(points, MAX_PAGE_SIZE));
+        }
+        List<SensorData> moistureData = series.toSensorData();
         return ResponseEntity.ok(moistureData);
     }
 
-    // New endpoint to fetch historical environment data (temperature and humidity)
+    // Historical environment data (temperature and humidity), same sources as /moisture
     @GetMapping("/environment")
-    public ResponseEntity<List<SensorData>> getEnvironmentData() {
-        LocalDateTime fiveHoursAgo = LocalDateTime.now().minusHours(5);
-        List<SensorData> environmentData = sensorDataRepository.findByTimestampAfterOrderByTimestampAsc(fiveHoursAgo);
+    public ResponseEntity<List<SensorData>> getEnvironmentData(
+            @RequestParam(defaultValue = SensorData.DEFAULT_DEVICE_ID) String deviceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer points) {
+        SensorSeries series = history(deviceId, from, to);
+        if (points != null) {
+            series = SensorDownsampler.environment(series, Math.min(points, MAX_PAGE_SIZE));
+        }
+        List<SensorData> environmentData = series.toSensorData();
         return ResponseEntity.ok(environmentData);
     }
 
-    private boolean isCollecting = false;
+    // Min/max/avg aggregates per bucket for long-range trend charts
+    @GetMapping("/series")
+    public ResponseEntity<List<SensorRollup>> getSensorSeries(
+            @RequestParam(defaultValue = "MINUTE") RollupResolution resolution,
+            @RequestParam(defaultValue = SensorData.DEFAULT_DEVICE_ID) String deviceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (to == null) {
+            to = LocalDateTime.now();
+        }
+        if (from == null) {
+            from = to.minus(resolution.getDefaultRange());
+        }
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(sensorRollupService.series(deviceId, resolution, from, to));
+    }
+
+    // Temperature and moisture percentiles over a range (default: the last shift), merged from hourly sketches
+    @GetMapping("/quantiles")
+    public ResponseEntity<Map<String, Object>> getQuantiles(
+            @RequestParam(defaultValue = SensorData.DEFAULT_DEVICE_ID) String deviceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "0.5,0.95,0.99") double[] q) {
+        if (to == null) {
+            to = LocalDateTime.now();
+        }
+        if (from == null) {
+            from = to.minusHours(8);
+        }
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        for (double quantile : q) {
+            if (quantile < 0 || quantile > 1) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return ResponseEntity.ok(sensorSketchService.quantiles(deviceId, from, to, q));
+    }
 
     @PostMapping("/start")
-    public ResponseEntity<String> startSensorCollection() {
-        isCollecting = true;
-        System.out.println(isCollecting);
+    public ResponseEntity<String> startSensorCollection(
+            @RequestParam(defaultValue = SensorData.DEFAULT_DEVICE_ID) String deviceId) {
+        deviceControlRegistry.start(deviceId);
+        System.out.println("Sensor data collection started for " + deviceId);
+        deviceCommandService.issue(deviceId, DeviceCommand.START);
         return ResponseEntity.ok("Sensor data collection started");
     }
 
     @PostMapping("/stop")
-    public ResponseEntity<String> stopSensorCollection() {
-
-        isCollecting = false;
-        System.out.println(isCollecting);
+    public ResponseEntity<String> stopSensorCollection(
+            @RequestParam(defaultValue = SensorData.DEFAULT_DEVICE_ID) String deviceId) {
+        deviceControlRegistry.stop(deviceId);
+        System.out.println("Sensor data collection stopped for " + deviceId);
+        deviceCommandService.issue(deviceId, DeviceCommand.STOP);
         return ResponseEntity.ok("Sensor data collection stopped");
     }
 
     @GetMapping("/status")
-    public ResponseEntity<Boolean> getSensorStatus() {
-        return ResponseEntity.ok(isCollecting);
+    public ResponseEntity<Boolean> getSensorStatus(
+            @RequestParam(defaultValue = SensorData.DEFAULT_DEVICE_ID) String deviceId) {
+        return ResponseEntity.ok(deviceControlRegistry.get(deviceId).collecting());
     }
 
-    private boolean isMotorIROn = true; // Default to ON
-
-    // New endpoint for emergency stop
+    // Emergency stop: turns the heater off and pushes the command to a waiting device right away
     @PostMapping("/emergency-stop")
-    public ResponseEntity<String> emergencyStop() {
-        isMotorIROn = false; // Turn off heating
-        System.out.println("Motor and IR turned OFF via emergency stop");
+    public ResponseEntity<String> emergencyStop(
+            @RequestParam(defaultValue = SensorData.DEFAULT_DEVICE_ID) String deviceId) {
+        // Pushed first: the device must not wait on anything the registry does
+        deviceCommandService.issue(deviceId, DeviceCommand.EMERGENCY_STOP);
+        deviceControlRegistry.emergencyStop(deviceId);
+        System.out.println("Motor and IR turned OFF via emergency stop for " + deviceId);
         return ResponseEntity.ok("Motor and IR turned OFF");
     }
 
     // New endpoint to check heating status
     @GetMapping("/MotorIR-status")
-    public ResponseEntity<Boolean> getMotorIRStatus() {
-        return ResponseEntity.ok(isMotorIROn);
+    public ResponseEntity<Boolean> getMotorIRStatus(
+            @RequestParam(defaultValue = SensorData.DEFAULT_DEVICE_ID) String deviceId) {
+        return ResponseEntity.ok(deviceControlRegistry.get(deviceId).motorIROn());
+    }
+
+    // Long-poll held open by the device; answers as soon as a command is issued, 204 on timeout
+    @GetMapping("/device/commands")
+    public DeferredResult<ResponseEntity<List<DeviceCommand>>> pollDeviceCommands(
+            @RequestParam(defaultValue = SensorData.DEFAULT_DEVICE_ID) String deviceId,
+            @RequestParam(defaultValue = "5000") long timeoutMs) {
+        long timeout = Math.max(MIN_COMMAND_POLL_MS, Math.min(timeoutMs, MAX_COMMAND_POLL_MS));
+        return deviceCommandService.poll(deviceId, timeout);
+    }
+
+    @PostMapping("/device/commands/{id}/ack")
+    public ResponseEntity<DeviceCommand> acknowledgeDeviceCommand(@PathVariable Long id) {
+        DeviceCommand command = deviceCommandService.acknowledge(id);
+        if (command == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(command);
+    }
+
+    @GetMapping("/device/commands/stats")
+    public ResponseEntity<Map<String, Object>> getDeviceCommandStats() {
+        return ResponseEntity.ok(deviceCommandService.getStats());
+    }
+
+    // Which devices are talking to the backend, and their recent online/offline transitions
+    @GetMapping("/devices")
+    public ResponseEntity<List<Map<String, Object>>> getDevices() {
+        return ResponseEntity.ok(deviceLivenessService.getDevices());
+    }
+
+    @GetMapping("/devices/events")
+    public ResponseEntity<List<DeviceLivenessEvent>> getDeviceEvents() {
+        return ResponseEntity.ok(deviceLivenessService.getRecentEvents());
+    }
+
+    // One round trip per device loop: stores the reading while collecting and returns the control state and any
+    // pending commands. When the device already holds the current state (If-None-Match) and no command is waiting,
+    // the body is skipped with 304.
+    @PostMapping("/device/sync")
+    public ResponseEntity<DeviceSyncResponse> syncDevice(
+            @RequestBody(required = false) SensorData sensorData,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String deviceId = sensorData == null || sensorData.getDeviceId() == null
+                ? SensorData.DEFAULT_DEVICE_ID : sensorData.getDeviceId();
+        DeviceControlRegistry.State state = deviceControlRegistry.get(deviceId);
+
+        boolean accepted = false;
+        if (state.collecting() && sensorData != null && sensorService.validate(sensorData) == null) {
+            // Ingest records the device as alive
+            if (!sensorService.ingest(sensorData)) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+            }
+            accepted = true;
+        } else {
+            deviceLivenessService.touch(DeviceSequenceService.SENSOR, deviceId);
+        }
+
+        List<DeviceCommand> commands = deviceCommandService.takePending(deviceId);
+        String etag = "\"" + state.version() + "\"";
+        if (commands.isEmpty() && etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag)
+                .body(new DeviceSyncResponse(state.collecting(), state.motorIROn(), accepted, commands));
+    }
+
+    private SensorSeries history(String deviceId, LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) {
+            return sensorHistoryService.lastHours(deviceId);
+        }
+        if (to == null) {
+            to = LocalDateTime.now();
+        }
+        if (from == null) {
+            from = to.minusDays(1);
+        }
+        return sensorArchiveService.range(deviceId, from, to);
     }
 }
@@ -0,0 +1,18 @@
+package com.cocopro.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Class of every posted sample, in request order; resent samples are classified but not counted again
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ColorBatchResult {
+    private int accepted;
+    private int duplicates;
+    private List<String> classes = new ArrayList<>();
+}
@@ -0,0 +1,31 @@
+package com.cocopro.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Color classes checked in order (first match wins), the class for everything else, and per-channel sensor calibration
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ColorClassifierConfig {
+    private List<ColorClassRule> classes = new ArrayList<>();
+    private String defaultClass;
+    private float[] gain = {1, 1, 1};
+    private float[] offset = {0, 0, 0};
+
+    // Inclusive [min, max] bounds on the calibrated channels and on their spread (max channel - min channel)
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ColorClassRule {
+        private String name;
+        private int[] red = {0, 255};
+        private int[] green = {0, 255};
+        private int[] blue = {0, 255};
+        private int[] spread = {0, 255};
+    }
+}
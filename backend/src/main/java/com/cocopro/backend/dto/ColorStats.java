@@ -0,0 +1,36 @@
+package com.cocopro.backend.dto;
+
+import com.cocopro.backend.model.RollupResolution;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Per-bucket color counts and channel histograms over a range, plus the whole range merged into "total"
+@Data
+@NoArgsConstructor
+public class ColorStats {
+    private String deviceId;
+    private RollupResolution bucket;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Bucket total = new Bucket();
+    private List<Bucket> buckets = new ArrayList<>();
+
+    // rejectRate is the share of BLACK samples; histograms hold one count per bin of raw channel values (0-255)
+    @Data
+    @NoArgsConstructor
+    public static class Bucket {
+        private LocalDateTime bucketStart;
+        private long count;
+        private Map<String, Long> classes = new TreeMap<>();
+        private double rejectRate;
+        private long[] red;
+        private long[] green;
+        private long[] blue;
+    }
+}
@@ -0,0 +1,20 @@
+package com.cocopro.backend.dto;
+
+import com.cocopro.backend.model.DeviceCommand;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Everything a dryer needs after one control poll: collection state, heater state, whether its reading was stored
+// and the commands issued to it since its last poll
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DeviceSyncResponse {
+    private boolean collecting;
+    private boolean motorIROn;
+    private boolean accepted;
+    private List<DeviceCommand> commands;
+}
@@ -0,0 +1,38 @@
+package com.cocopro.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SensorBatchResult {
+
+    private int accepted;
+    private int rejected;
+    private List<ItemResult> results = new ArrayList<>();
+
+    public void accept(int index) {
+        accepted++;
+        results.add(new ItemResult(index, true, null));
+    }
+
+    public void reject(int index, String reason) {
+        rejected++;
+        results.add(new ItemResult(index, false, reason));
+    }
+
+    // Result for one reading, matched to the request by its position in the posted array
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ItemResult {
+        private int index;
+        private boolean accepted;
+        private String reason;
+    }
+}
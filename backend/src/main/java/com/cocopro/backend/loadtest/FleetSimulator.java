@@ -0,0 +1,243 @@
+package com.cocopro.backend.loadtest;
+
+import java.net.http.HttpResponse;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Virtual ESP32 fleet. Each sensor device loops like the dryer firmware: post a reading to
+ * /device/sync with its cached ETag, resend it after a 5xx, 429 or lost connection (waiting
+ * out Retry-After), acknowledge any commands in the response, then wait the loop interval.
+ * The legacy pattern of older firmware (poll /status, and while collecting poll
+ * /MotorIR-status and post to /save) can still be selected. Color devices post a reading
+ * every interval. Devices start at random offsets within the first interval so they do not
+ * arrive in lockstep.
+ */
+class FleetSimulator {
+
+    private final LoadTestClient client;
+    private final int sensorDevices;
+    private final int colorDevices;
+    private final long intervalMillis;
+    private final boolean legacy;
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "loadtest-fleet");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    FleetSimulator(LoadTestClient client, int sensorDevices, int colorDevices, long intervalMillis, boolean legacy) {
+        this.client = client;
+        this.sensorDevices = sensorDevices;
+        this.colorDevices = colorDevices;
+        this.intervalMillis = intervalMillis;
+        this.legacy = legacy;
+    }
+
+    void run(long durationMillis) throws InterruptedException {
+        // What an operator would do from the dashboard before the dryers start sending
+        CompletableFuture<?>[] started = new CompletableFuture<?>[sensorDevices];
+        for (int i = 0; i < sensorDevices; i++) {
+            started[i] = client.post("/api/sensor-data/start", "deviceId=" + sensorDeviceId(i), null, null);
+        }
+        CompletableFuture.allOf(started).join();
+
+        long deadline = System.currentTimeMillis() + durationMillis;
+        CountDownLatch finished = new CountDownLatch(sensorDevices + colorDevices);
+        for (int i = 0; i < sensorDevices; i++) {
+            SensorDevice device = new SensorDevice(sensorDeviceId(i), deadline, finished);
+            scheduler.schedule(device::loop, randomDelay(), TimeUnit.MILLISECONDS);
+        }
+        for (int i = 0; i < colorDevices; i++) {
+            ColorDevice device = new ColorDevice(String.format("sim-color-%04d", i), deadline, finished);
+            scheduler.schedule(device::loop, randomDelay(), TimeUnit.MILLISECONDS);
+        }
+        finished.await(durationMillis + 2 * intervalMillis + 60_000, TimeUnit.MILLISECONDS);
+        scheduler.shutdownNow();
+
+        CompletableFuture<?>[] stopped = new CompletableFuture<?>[sensorDevices];
+        for (int i = 0; i < sensorDevices; i++) {
+            stopped[i] = client.post("/api/sensor-data/stop", "deviceId=" + sensorDeviceId(i), null, null);
+        }
+        CompletableFuture.allOf(stopped).join();
+    }
+
+    private long randomDelay() {
+        return ThreadLocalRandom.current().nextLong(Math.max(1, intervalMillis));
+    }
+
+    private static String sensorDeviceId(int index) {
+        return String.format("sim-%04d", index);
+    }
+
+    // Like the firmware's toInt(): anything unparsable is 0
+    private static long seconds(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static boolean isTrue(HttpResponse<String> response) {
+        return response != null && response.statusCode() == 200 && "true".equals(response.body());
+    }
+
+    private final class SensorDevice {
+        private final String deviceId;
+        private final long deadline;
+        private final CountDownLatch finished;
+        private final long boot = ThreadLocalRandom.current().nextLong(1, Integer.MAX_VALUE);
+        private long seq;
+        private double temperature = 40 + ThreadLocalRandom.current().nextDouble(10);
+        private double humidity = 55 + ThreadLocalRandom.current().nextDouble(10);
+        private double moisture = 60 + ThreadLocalRandom.current().nextDouble(20);
+        private String lastEtag = "";
+        private String unsentReading;
+
+        SensorDevice(String deviceId, long deadline, CountDownLatch finished) {
+            this.deviceId = deviceId;
+            this.deadline = deadline;
+            this.finished = finished;
+        }
+
+        void loop() {
+            if (System.currentTimeMillis() >= deadline) {
+                finished.countDown();
+                return;
+            }
+            if (legacy) {
+                pollAndSave();
+            } else {
+                sync();
+            }
+        }
+
+        private void sync() {
+            // A reading whose sync failed is resent unchanged with its original seq
+            String reading = unsentReading != null ? unsentReading : nextSyncReading();
+            Map<String, String> headers = lastEtag.isEmpty() ? Map.of() : Map.of("If-None-Match", lastEtag);
+            client.post("/api/sensor-data/device/sync", null, deviceId, reading, headers)
+                    .whenComplete((response, error) -> {
+                        int status = response == null ? 0 : response.statusCode();
+                        if (status == 200) {
+                            lastEtag = response.headers().firstValue("ETag").orElse("");
+                            acknowledgeCommands(response.body());
+                        }
+                        if (status == 200 || status == 304) {
+                            unsentReading = null;
+                            scheduleNext(intervalMillis);
+                            return;
+                        }
+                        // Lost connection, server trouble or throttled: try this reading again; a rejected reading is dropped
+                        unsentReading = status == 0 || status >= 500 || status == 429 ? reading : null;
+                        long retryAfterMillis = 0;
+                        if (status == 429) {
+                            long retryAfter = response.headers().firstValue("Retry-After").map(FleetSimulator::seconds).orElse(0L);
+                            retryAfterMillis = TimeUnit.SECONDS.toMillis(Math.max(1, Math.min(60, retryAfter)));
+                        }
+                        scheduleNext(retryAfterMillis + intervalMillis);
+                    });
+        }
+
+        // The same scan the firmware does: every "id" after "commands":[ is a command to acknowledge
+        private void acknowledgeCommands(String body) {
+            int commandsStart = body.indexOf("\"commands\":[");
+            if (commandsStart < 0) {
+                return;
+            }
+            int position = commandsStart;
+            while ((position = body.indexOf("\"id\":", position)) >= 0) {
+                position += 5;
+                int end = position;
+                while (end < body.length() && Character.isDigit(body.charAt(end))) {
+                    end++;
+                }
+                client.post("/api/sensor-data/device/commands/" + body.substring(position, end) + "/ack",
+                        "deviceId=" + deviceId, deviceId, null);
+            }
+        }
+
+        private void pollAndSave() {
+            String query = "deviceId=" + deviceId;
+            client.get("/api/sensor-data/status", query, deviceId)
+                    .thenCompose(status -> {
+                        if (!isTrue(status)) {
+                            return CompletableFuture.completedFuture(null);
+                        }
+                        return client.get("/api/sensor-data/MotorIR-status", query, deviceId)
+                                .thenCompose(motor -> client.post("/api/sensor-data/save", null, deviceId, nextReading()));
+                    })
+                    .whenComplete((ignored, error) -> scheduleNext(intervalMillis));
+        }
+
+        private void scheduleNext(long delayMillis) {
+            if (!scheduler.isShutdown()) {
+                scheduler.schedule(this::loop, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        // The firmware's body: no rpm, fields in the order the sketch writes them
+        private String nextSyncReading() {
+            advance();
+            return String.format(Locale.ROOT,
+                    "{\"temperature\":%.2f, \"humidity\":%.2f, \"moisture\":%d, \"seq\":%d, \"boot\":%d, \"deviceId\":\"%s\"}",
+                    temperature, humidity, Math.round(moisture), seq, boot, deviceId);
+        }
+
+        private String nextReading() {
+            advance();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            return String.format(Locale.ROOT,
+                    "{\"deviceId\":\"%s\",\"temperature\":%.2f,\"humidity\":%.2f,\"moisture\":%d,\"rpm\":%d,\"seq\":%d,\"boot\":%d}",
+                    deviceId, temperature, humidity, Math.round(moisture), 20 + random.nextInt(5), seq, boot);
+        }
+
+        // A slow random walk, drying out over time, so deadband and rules see realistic input
+        private void advance() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            temperature = Math.max(20, Math.min(60, temperature + random.nextGaussian() * 0.3));
+            humidity = Math.max(10, Math.min(95, humidity + random.nextGaussian() * 0.5));
+            moisture = Math.max(5, moisture - random.nextDouble(0.2));
+            seq++;
+        }
+    }
+
+    private final class ColorDevice {
+        private final String deviceId;
+        private final long deadline;
+        private final CountDownLatch finished;
+        private final long boot = ThreadLocalRandom.current().nextLong(1, Integer.MAX_VALUE);
+        private long seq;
+
+        ColorDevice(String deviceId, long deadline, CountDownLatch finished) {
+            this.deviceId = deviceId;
+            this.deadline = deadline;
+            this.finished = finished;
+        }
+
+        void loop() {
+            if (System.currentTimeMillis() >= deadline) {
+                finished.countDown();
+                return;
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            seq++;
+            String json = String.format(Locale.ROOT,
+                    "{\"deviceId\":\"%s\",\"red\":%d,\"green\":%d,\"blue\":%d,\"seq\":%d,\"boot\":%d}",
+                    deviceId, random.nextInt(256), random.nextInt(256), random.nextInt(256), seq, boot);
+            client.post("/api/color-data/save", null, deviceId, json)
+                    .whenComplete((ignored, error) -> {
+                        if (!scheduler.isShutdown()) {
+                            scheduler.schedule(this::loop, intervalMillis, TimeUnit.MILLISECONDS);
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.cocopro.backend.loadtest;
+
+import com.cocopro.backend.model.ColorData;
+import com.cocopro.backend.model.SensorData;
+import com.cocopro.backend.service.SensorSeries;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Replays recorded rows (a JSON array, e.g. the output of /api/sensor-data/export) against
+ * the save endpoints, keeping the original spacing between rows divided by the speed-up.
+ * A speed-up of 0 or less sends as fast as the in-flight limit allows. Rows are streamed
+ * from the file, and each is re-stamped with the send time so the backend sees live data.
+ */
+class HistoryReplayer {
+
+    private static final int MAX_IN_FLIGHT = 512;
+
+    private final LoadTestClient client;
+    private final ObjectMapper objectMapper;
+    private final double speedup;
+
+    HistoryReplayer(LoadTestClient client, ObjectMapper objectMapper, double speedup) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.speedup = speedup;
+    }
+
+    long replaySensorData(File file) throws IOException, InterruptedException {
+        return replay(file, SensorData.class, "/api/sensor-data/save", SensorData::getTimestamp,
+                SensorData::getDeviceId, (row, now) -> {
+                    row.setId(null);
+                    row.setTimestamp(now);
+                });
+    }
+
+    long replayColorData(File file) throws IOException, InterruptedException {
+        return replay(file, ColorData.class, "/api/color-data/save", ColorData::getTimestamp,
+                ColorData::getDeviceId, (row, now) -> {
+                    row.setId(null);
+                    row.setTimestamp(now);
+                });
+    }
+
+    private <T> long replay(File file, Class<T> type, String endpoint, Function<T, LocalDateTime> timestampOf,
+                            Function<T, String> deviceIdOf, BiConsumer<T, LocalDateTime> restamp)
+            throws IOException, InterruptedException {
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        long sent = 0;
+        long firstTimestamp = Long.MIN_VALUE;
+        long startedNanos = System.nanoTime();
+        try (MappingIterator<T> rows = objectMapper.readerFor(type).readValues(file)) {
+            while (rows.hasNext()) {
+                T row = rows.next();
+                LocalDateTime recorded = timestampOf.apply(row);
+                long timestamp = recorded == null ? 0 : SensorSeries.toEpochMillis(recorded);
+                if (firstTimestamp == Long.MIN_VALUE) {
+                    firstTimestamp = timestamp;
+                }
+                waitUntil(startedNanos, timestamp - firstTimestamp);
+                restamp.accept(row, LocalDateTime.now());
+                inFlight.acquire();
+                client.post(endpoint, null, deviceIdOf.apply(row), objectMapper.writeValueAsString(row))
+                        .whenComplete((response, error) -> inFlight.release());
+                sent++;
+            }
+        }
+        inFlight.acquire(MAX_IN_FLIGHT);
+        return sent;
+    }
+
+    private void waitUntil(long startedNanos, long offsetMillis) {
+        if (speedup <= 0) {
+            return;
+        }
+        long target = startedNanos + (long) (TimeUnit.MILLISECONDS.toNanos(offsetMillis) / speedup);
+        long remaining;
+        while ((remaining = target - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
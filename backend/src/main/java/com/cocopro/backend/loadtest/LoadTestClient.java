@@ -0,0 +1,73 @@
+package com.cocopro.backend.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Async HTTP calls against the running backend; every call is timed into the run's metrics
+class LoadTestClient {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String baseUrl;
+    private final LoadTestMetrics metrics;
+
+    LoadTestClient(String baseUrl, LoadTestMetrics metrics) {
+        this.baseUrl = baseUrl;
+        this.metrics = metrics;
+    }
+
+    CompletableFuture<HttpResponse<String>> get(String endpoint, String query, String deviceId) {
+        return send(endpoint, request(endpoint, query, deviceId).GET().build());
+    }
+
+    CompletableFuture<HttpResponse<String>> post(String endpoint, String query, String deviceId, String json) {
+        return post(endpoint, query, deviceId, json, Map.of());
+    }
+
+    // Headers are added as given, e.g. the If-None-Match a device sends with its cached ETag
+    CompletableFuture<HttpResponse<String>> post(String endpoint, String query, String deviceId, String json,
+                                                 Map<String, String> headers) {
+        HttpRequest.Builder builder = request(endpoint, query, deviceId);
+        if (json == null) {
+            builder.POST(HttpRequest.BodyPublishers.noBody());
+        } else {
+            builder.header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(json));
+        }
+        headers.forEach(builder::header);
+        return send(endpoint, builder.build());
+    }
+
+    private HttpRequest.Builder request(String endpoint, String query, String deviceId) {
+        String uri = baseUrl + endpoint + (query == null ? "" : "?" + query);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(uri)).timeout(REQUEST_TIMEOUT);
+        if (deviceId != null) {
+            builder.header("X-Device-Id", deviceId);
+        }
+        return builder;
+    }
+
+    // Completes with null when the request failed outright, so device loops keep going
+    private CompletableFuture<HttpResponse<String>> send(String path, HttpRequest request) {
+        // Ids in the path are folded, so every command ack is counted under one endpoint
+        String endpoint = path.replaceAll("/\\d+(?=/|$)", "/{id}");
+        long started = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    long latency = System.nanoTime() - started;
+                    if (error != null) {
+                        metrics.recordFailure(endpoint, latency);
+                        return null;
+                    }
+                    metrics.record(endpoint, response.statusCode(), latency);
+                    return response;
+                });
+    }
+}
@@ -0,0 +1,54 @@
+package com.cocopro.backend.loadtest;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-endpoint request counts, status codes and latency histograms for one load-test run
+class LoadTestMetrics {
+
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final long startedNanos = System.nanoTime();
+
+    void record(String endpoint, int status, long latencyNanos) {
+        EndpointMetrics metrics = endpoints.computeIfAbsent(endpoint, key -> new EndpointMetrics());
+        metrics.latency.recordNanos(latencyNanos);
+        metrics.statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+    }
+
+    // Connection failures and timeouts are counted under status 0
+    void recordFailure(String endpoint, long latencyNanos) {
+        record(endpoint, 0, latencyNanos);
+    }
+
+    void print(PrintStream out) {
+        double elapsedSeconds = (System.nanoTime() - startedNanos) / 1e9;
+        out.printf("%nLoad test finished after %.1f s%n", elapsedSeconds);
+        out.printf("%-44s %9s %9s %9s %9s %9s %9s %9s  %s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "statuses");
+        new TreeMap<>(endpoints).forEach((endpoint, metrics) -> {
+            long count = metrics.latency.getCount();
+            Map<Integer, Long> statuses = new TreeMap<>();
+            metrics.statuses.forEach((status, adder) -> statuses.put(status, adder.sum()));
+            out.printf("%-44s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n",
+                    endpoint, count, count / elapsedSeconds,
+                    millis(metrics.latency.quantileMicros(0.5)),
+                    millis(metrics.latency.quantileMicros(0.9)),
+                    millis(metrics.latency.quantileMicros(0.99)),
+                    millis(metrics.latency.quantileMicros(0.999)),
+                    millis(metrics.latency.quantileMicros(1.0)),
+                    statuses);
+        });
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static final class EndpointMetrics {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,110 @@
+package com.cocopro.backend.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the real HTTP endpoints of this backend once it is up, then prints throughput and
+ * latency percentiles per endpoint. Only active under the "loadtest" profile, which also
+ * switches to an embedded H2 database (see the loadtest Maven profile):
+ *
+ *   mvn -Ploadtest spring-boot:run -Dspring-boot.run.arguments="--loadtest.devices=500"
+ *
+ * loadtest.mode=fleet simulates devices following the current firmware's /device/sync loop;
+ * loadtest.mode=fleet-legacy follows the older /status, /MotorIR-status, /save pattern;
+ * loadtest.mode=replay re-sends exported rows from loadtest.replay-file and/or
+ * loadtest.replay-color-file at loadtest.speedup times the recorded pace.
+ */
+@Component
+@Profile("loadtest")
+public class LoadTestRunner implements ApplicationRunner {
+
+    private final ConfigurableApplicationContext context;
+    private final Environment environment;
+    private final ObjectMapper objectMapper;
+    private final String mode;
+    private final int devices;
+    private final int colorDevices;
+    private final long intervalMillis;
+    private final long durationSeconds;
+    private final String replayFile;
+    private final String replayColorFile;
+    private final double speedup;
+    private final boolean exitWhenDone;
+
+    public LoadTestRunner(ConfigurableApplicationContext context,
+                          Environment environment,
+                          ObjectMapper objectMapper,
+                          @Value("${loadtest.mode:fleet}") String mode,
+                          @Value("${loadtest.devices:50}") int devices,
+                          @Value("${loadtest.color-devices:0}") int colorDevices,
+                          @Value("${loadtest.interval-ms:5000}") long intervalMillis,
+                          @Value("${loadtest.duration-seconds:60}") long durationSeconds,
+                          @Value("${loadtest.replay-file:}") String replayFile,
+                          @Value("${loadtest.replay-color-file:}") String replayColorFile,
+                          @Value("${loadtest.speedup:10}") double speedup,
+                          @Value("${loadtest.exit-when-done:true}") boolean exitWhenDone) {
+        this.context = context;
+        this.environment = environment;
+        this.objectMapper = objectMapper;
+        this.mode = mode;
+        this.devices = devices;
+        this.colorDevices = colorDevices;
+        this.intervalMillis = intervalMillis;
+        this.durationSeconds = durationSeconds;
+        this.replayFile = replayFile;
+        this.replayColorFile = replayColorFile;
+        this.speedup = speedup;
+        this.exitWhenDone = exitWhenDone;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        String baseUrl = "http://localhost:" + environment.getProperty("local.server.port", "8080");
+        LoadTestMetrics metrics = new LoadTestMetrics();
+        LoadTestClient client = new LoadTestClient(baseUrl, metrics);
+
+        if ("replay".equalsIgnoreCase(mode)) {
+            HistoryReplayer replayer = new HistoryReplayer(client, objectMapper, speedup);
+            System.out.println("Replaying recorded rows against " + baseUrl + " at " + speedup + "x");
+            if (!replayFile.isBlank()) {
+                long sent = replayer.replaySensorData(new File(replayFile));
+                System.out.println("Replayed " + sent + " sensor rows from " + replayFile);
+            }
+            if (!replayColorFile.isBlank()) {
+                long sent = replayer.replayColorData(new File(replayColorFile));
+                System.out.println("Replayed " + sent + " color rows from " + replayColorFile);
+            }
+        } else {
+            boolean legacy = "fleet-legacy".equalsIgnoreCase(mode);
+            System.out.println("Simulating " + devices + " sensor and " + colorDevices + " color devices"
+                    + (legacy ? " (legacy firmware)" : "") + " against " + baseUrl + " for " + durationSeconds + " s");
+            new FleetSimulator(client, devices, colorDevices, intervalMillis, legacy)
+                    .run(TimeUnit.SECONDS.toMillis(durationSeconds));
+        }
+
+        metrics.print(System.out);
+        // The backend's own view: queue depth, drops, flush latency, throttling
+        HttpResponse<String> stats = new LoadTestClient(baseUrl, new LoadTestMetrics())
+                .get("/api/sensor-data/ingest-stats", null, null)
+                .join();
+        if (stats != null) {
+            System.out.println("Ingest stats: " + stats.body());
+        }
+
+        if (exitWhenDone) {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+}
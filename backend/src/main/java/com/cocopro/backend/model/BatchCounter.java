@@ -2,13 +2,32 @@ package com.cocopro.backend.model;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
 
 @Entity
-public class BatchCounter {
+public class BatchCounter implements Persistable<String> {
     @Id
     private String id = "BATCH_COUNTER"; // Single row ID
     private int lastBatchNumber;
 
+    // The id is assigned, so without this save() would merge and could overwrite a row another instance created
+    @Transient
+    private boolean isNew = true;
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+
     // Getters and setters
     public String getId() {
         return id;
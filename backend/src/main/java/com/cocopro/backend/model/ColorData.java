@@ -1,9 +1,12 @@
 package com.cocopro.backend.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Transient;
 
 import java.time.LocalDateTime;
 
@@ -17,8 +20,24 @@ public class ColorData {
     private int green;
     private int blue;
     private boolean blackDetected;
+
+    // Class assigned by the color classifier when the sample was stored
+    @Column(name = "color_class")
+    private String colorClass;
     private LocalDateTime timestamp = LocalDateTime.now();
 
+    @Column(name = "device_id")
+    private String deviceId = SensorData.DEFAULT_DEVICE_ID;
+
+    // Device-side post numbering used to drop resends; not stored
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long seq;
+
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long boot;
+
     public Long getId() {
         return id;
     }
@@ -59,6 +78,14 @@ public class ColorData {
         this.blackDetected = blackDetected;
     }
 
+    public String getColorClass() {
+        return colorClass;
+    }
+
+    public void setColorClass(String colorClass) {
+        this.colorClass = colorClass;
+    }
+
     public LocalDateTime getTimestamp() {
         return timestamp;
     }
@@ -66,5 +93,28 @@ public class ColorData {
     public void setTimestamp(LocalDateTime timestamp) {
         this.timestamp = timestamp;
     }
-}
 
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+
+    public Long getBoot() {
+        return boot;
+    }
+
+    public void setBoot(Long boot) {
+        this.boot = boot;
+    }
+}
@@ -0,0 +1,61 @@
+package com.cocopro.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+// Samples per class and RGB channel histograms of one color sensor within one bucket
+@Entity
+@Table(name = "color_rollups", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"device_id", "resolution", "bucket_start"})
+})
+@Getter
+@Setter
+public class ColorRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "device_id", nullable = false)
+    private String deviceId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RollupResolution resolution;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    private long count;
+
+    // Stored with the row in the same save, so a bucket's counts and histograms never disagree
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "color_rollup_classes", joinColumns = @JoinColumn(name = "rollup_id"))
+    @MapKeyColumn(name = "color_class")
+    @Column(name = "count", nullable = false)
+    private Map<String, Long> classCounts = new HashMap<>();
+
+    // Serialized QuantileSketch per channel; 256 one-value buckets encode to at most a few KB
+    @Column(name = "red_histogram", length = 4096)
+    private byte[] redHistogram;
+
+    @Column(name = "green_histogram", length = 4096)
+    private byte[] greenHistogram;
+
+    @Column(name = "blue_histogram", length = 4096)
+    private byte[] blueHistogram;
+
+    public ColorRollup() {
+    }
+
+    public ColorRollup(String deviceId, RollupResolution resolution, LocalDateTime bucketStart) {
+        this.deviceId = deviceId;
+        this.resolution = resolution;
+        this.bucketStart = bucketStart;
+    }
+}
@@ -0,0 +1,57 @@
+package com.cocopro.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// A color sensor's debounced class changed; the sample is the one that tipped the vote
+@Entity
+@Table(name = "color_transitions", indexes = {
+        @Index(name = "idx_color_transitions_device_time", columnList = "device_id, timestamp")
+})
+@Getter
+@Setter
+public class ColorTransition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "device_id", nullable = false)
+    private String deviceId;
+
+    @Column(nullable = false)
+    private LocalDateTime timestamp;
+
+    // Null for the first state seen after startup
+    @Column(name = "from_class")
+    private String fromClass;
+
+    @Column(name = "to_class", nullable = false)
+    private String toClass;
+
+    // Samples spent in the previous state
+    @Column(name = "previous_samples")
+    private long previousSamples;
+
+    private int red;
+    private int green;
+    private int blue;
+
+    public ColorTransition() {
+    }
+
+    public ColorTransition(String deviceId, LocalDateTime timestamp, String fromClass, String toClass,
+                           long previousSamples, int red, int green, int blue) {
+        this.deviceId = deviceId;
+        this.timestamp = timestamp;
+        this.fromClass = fromClass;
+        this.toClass = toClass;
+        this.previousSamples = previousSamples;
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+    }
+}
@@ -0,0 +1,64 @@
+package com.cocopro.backend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "device_commands")
+@Getter
+@Setter
+public class DeviceCommand implements Persistable<Long> {
+
+    public static final String EMERGENCY_STOP = "EMERGENCY_STOP";
+    public static final String START = "START";
+    public static final String STOP = "STOP";
+
+    // Assigned by DeviceCommandService so a command can be pushed before its row is written
+    @Id
+    private Long id;
+
+    @Column(name = "device_id", nullable = false)
+    private String deviceId;
+
+    @Column(nullable = false)
+    private String type; // "EMERGENCY_STOP", "START" or "STOP"
+
+    @Column(name = "issued_at", nullable = false)
+    private LocalDateTime issuedAt;
+
+    @Column(name = "delivered_at")
+    private LocalDateTime deliveredAt;
+
+    @Column(name = "acknowledged_at")
+    private LocalDateTime acknowledgedAt;
+
+    // The id is assigned, so without this save() would merge over a stored command that has the same id
+    @Transient
+    private boolean isNew = true;
+
+    public DeviceCommand() {
+    }
+
+    public DeviceCommand(String deviceId, String type) {
+        this.deviceId = deviceId;
+        this.type = type;
+        this.issuedAt = LocalDateTime.now();
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return isNew;
+    }
+
+    // Cleared once the row is known to exist, not on persist: the INSERT itself may still fail on the key
+    @PostLoad
+    public void markNotNew() {
+        isNew = false;
+    }
+}
@@ -0,0 +1,62 @@
+package com.cocopro.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+// Persisted control state of one dryer, written behind on every start/stop/emergency-stop
+@Entity
+@Table(name = "device_controls")
+@Getter
+@Setter
+public class DeviceControl implements Persistable<String> {
+
+    @Id
+    @Column(name = "device_id")
+    private String deviceId;
+
+    private boolean collecting;
+
+    @Column(name = "motor_ir_on")
+    private boolean motorIROn;
+
+    // Incremented on every transition; stale writes with a lower version are ignored
+    private long version;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // The id is the device id, so without this save() would merge over a row inserted concurrently
+    @Transient
+    private boolean isNew = true;
+
+    public DeviceControl() {
+    }
+
+    public DeviceControl(String deviceId, boolean collecting, boolean motorIROn, long version) {
+        this.deviceId = deviceId;
+        this.collecting = collecting;
+        this.motorIROn = motorIROn;
+        this.version = version;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    @Override
+    public String getId() {
+        return deviceId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+}
@@ -0,0 +1,28 @@
+package com.cocopro.backend.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum RollupResolution {
+    MINUTE(ChronoUnit.MINUTES, Duration.ofHours(6)),
+    HOUR(ChronoUnit.HOURS, Duration.ofDays(7)),
+    DAY(ChronoUnit.DAYS, Duration.ofDays(90));
+
+    private final ChronoUnit unit;
+    private final Duration defaultRange;
+
+    RollupResolution(ChronoUnit unit, Duration defaultRange) {
+        this.unit = unit;
+        this.defaultRange = defaultRange;
+    }
+
+    public LocalDateTime bucketStart(LocalDateTime timestamp) {
+        return timestamp.truncatedTo(unit);
+    }
+
+    // How far back /series looks when the caller does not pass "from"
+    public Duration getDefaultRange() {
+        return defaultRange;
+    }
+}
@@ -1,6 +1,7 @@
 package com.cocopro.backend.model;
 
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -14,6 +15,9 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 public class SensorData {
 
+    // Readings from firmware that does not identify itself are attributed to this dryer
+    public static final String DEFAULT_DEVICE_ID = "default";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -26,6 +30,18 @@ public class SensorData {
     private LocalDateTime timestamp = LocalDateTime.now(); // Automatically set the timestamp when data is saved
     private int rpm;
 
+    @Column(name = "device_id")
+    private String deviceId = DEFAULT_DEVICE_ID;
+
+    // Device-side post numbering used to drop resends; not stored
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long seq;
+
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long boot;
+
     public Long getId() {
         return id;
     }
@@ -73,4 +89,28 @@ public class SensorData {
     public void setRpm(int rpm) {
         this.rpm = rpm;
     }
-}
\ No newline at end of file
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+
+    public Long getBoot() {
+        return boot;
+    }
+
+    public void setBoot(Long boot) {
+        this.boot = boot;
+    }
+}
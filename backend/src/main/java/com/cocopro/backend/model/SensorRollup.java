@@ -0,0 +1,115 @@
+package com.cocopro.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "sensor_rollups", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"device_id", "resolution", "bucket_start"})
+})
+@Getter
+@Setter
+public class SensorRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "device_id", nullable = false)
+    private String deviceId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RollupResolution resolution;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    private long count;
+
+    private float temperatureMin;
+    private float temperatureMax;
+    private double temperatureSum;
+
+    private float humidityMin;
+    private float humidityMax;
+    private double humiditySum;
+
+    private int moistureMin;
+    private int moistureMax;
+    private long moistureSum;
+
+    private int rpmMin;
+    private int rpmMax;
+    private long rpmSum;
+
+    public SensorRollup() {
+    }
+
+    public SensorRollup(String deviceId, RollupResolution resolution, LocalDateTime bucketStart) {
+        this.deviceId = deviceId;
+        this.resolution = resolution;
+        this.bucketStart = bucketStart;
+    }
+
+    // Folds another partial aggregate of the same bucket into this one
+    public void merge(SensorRollup other) {
+        if (other.count == 0) {
+            return;
+        }
+        boolean first = count == 0;
+        temperatureMin = first ? other.temperatureMin : Math.min(temperatureMin, other.temperatureMin);
+        temperatureMax = first ? other.temperatureMax : Math.max(temperatureMax, other.temperatureMax);
+        humidityMin = first ? other.humidityMin : Math.min(humidityMin, other.humidityMin);
+        humidityMax = first ? other.humidityMax : Math.max(humidityMax, other.humidityMax);
+        moistureMin = first ? other.moistureMin : Math.min(moistureMin, other.moistureMin);
+        moistureMax = first ? other.moistureMax : Math.max(moistureMax, other.moistureMax);
+        rpmMin = first ? other.rpmMin : Math.min(rpmMin, other.rpmMin);
+        rpmMax = first ? other.rpmMax : Math.max(rpmMax, other.rpmMax);
+        temperatureSum += other.temperatureSum;
+        humiditySum += other.humiditySum;
+        moistureSum += other.moistureSum;
+        rpmSum += other.rpmSum;
+        count += other.count;
+    }
+
+    public void add(SensorData reading) {
+        float temperature = reading.getTemperature();
+        float humidity = reading.getHumidity();
+        int moisture = reading.getMoisture();
+        int rpm = reading.getRpm();
+        boolean first = count == 0;
+        temperatureMin = first ? temperature : Math.min(temperatureMin, temperature);
+        temperatureMax = first ? temperature : Math.max(temperatureMax, temperature);
+        humidityMin = first ? humidity : Math.min(humidityMin, humidity);
+        humidityMax = first ? humidity : Math.max(humidityMax, humidity);
+        moistureMin = first ? moisture : Math.min(moistureMin, moisture);
+        moistureMax = first ? moisture : Math.max(moistureMax, moisture);
+        rpmMin = first ? rpm : Math.min(rpmMin, rpm);
+        rpmMax = first ? rpm : Math.max(rpmMax, rpm);
+        temperatureSum += temperature;
+        humiditySum += humidity;
+        moistureSum += moisture;
+        rpmSum += rpm;
+        count++;
+    }
+
+    public double getTemperatureAvg() {
+        return count == 0 ? 0 : temperatureSum / count;
+    }
+
+    public double getHumidityAvg() {
+        return count == 0 ? 0 : humiditySum / count;
+    }
+
+    public double getMoistureAvg() {
+        return count == 0 ? 0 : (double) moistureSum / count;
+    }
+
+    public double getRpmAvg() {
+        return count == 0 ? 0 : (double) rpmSum / count;
+    }
+}
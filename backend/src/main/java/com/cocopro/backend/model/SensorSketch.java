@@ -0,0 +1,44 @@
+package com.cocopro.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "sensor_sketches", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"device_id", "bucket_start"})
+})
+@Getter
+@Setter
+public class SensorSketch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "device_id", nullable = false)
+    private String deviceId;
+
+    // Start of the hour the sketches cover
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    private long count;
+
+    // Serialized QuantileSketch per channel; a full temperature range encodes to well under 8 KB
+    @Column(name = "temperature_sketch", length = 16384)
+    private byte[] temperatureSketch;
+
+    @Column(name = "moisture_sketch", length = 16384)
+    private byte[] moistureSketch;
+
+    public SensorSketch() {
+    }
+
+    public SensorSketch(String deviceId, LocalDateTime bucketStart) {
+        this.deviceId = deviceId;
+        this.bucketStart = bucketStart;
+    }
+}
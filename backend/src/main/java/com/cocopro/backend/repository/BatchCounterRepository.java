@@ -2,6 +2,17 @@ package com.cocopro.backend.repository;
 
 import com.cocopro.backend.model.BatchCounter;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface BatchCounterRepository extends JpaRepository<BatchCounter, String> {
-}
\ No newline at end of file
+
+    // Atomic read-modify-write in the database; the row stays locked until the caller's transaction commits
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE BatchCounter c SET c.lastBatchNumber = c.lastBatchNumber + :block WHERE c.id = :id")
+    int advance(@Param("id") String id, @Param("block") int block);
+
+    @Query("SELECT c.lastBatchNumber FROM BatchCounter c WHERE c.id = :id")
+    int findLastBatchNumber(@Param("id") String id);
+}
@@ -4,5 +4,6 @@ import com.cocopro.backend.model.ColorData;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface ColorDataRepository extends JpaRepository<ColorData, Long> {
+    ColorData findTopByDeviceIdOrderByTimestampDesc(String deviceId);
 }
 
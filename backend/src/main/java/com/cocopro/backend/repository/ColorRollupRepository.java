@@ -0,0 +1,20 @@
+package com.cocopro.backend.repository;
+
+import com.cocopro.backend.model.ColorRollup;
+import com.cocopro.backend.model.RollupResolution;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface ColorRollupRepository extends JpaRepository<ColorRollup, Long> {
+    Optional<ColorRollup> findByDeviceIdAndResolutionAndBucketStart(String deviceId, RollupResolution resolution,
+                                                                    LocalDateTime bucketStart);
+
+    // Class counts are joined in, one query for the whole range
+    @EntityGraph(attributePaths = "classCounts")
+    List<ColorRollup> findByDeviceIdAndResolutionAndBucketStartBetweenOrderByBucketStartAsc(
+            String deviceId, RollupResolution resolution, LocalDateTime from, LocalDateTime to);
+}
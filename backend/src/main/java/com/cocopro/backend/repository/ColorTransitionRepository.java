@@ -0,0 +1,14 @@
+package com.cocopro.backend.repository;
+
+import com.cocopro.backend.model.ColorTransition;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ColorTransitionRepository extends JpaRepository<ColorTransition, Long> {
+    List<ColorTransition> findByDeviceIdAndTimestampBetweenOrderByTimestampAsc(String deviceId, LocalDateTime from,
+                                                                               LocalDateTime to);
+
+    ColorTransition findTopByDeviceIdOrderByTimestampDesc(String deviceId);
+}
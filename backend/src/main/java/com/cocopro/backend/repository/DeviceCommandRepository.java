@@ -0,0 +1,11 @@
+package com.cocopro.backend.repository;
+
+import com.cocopro.backend.model.DeviceCommand;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+public interface DeviceCommandRepository extends JpaRepository<DeviceCommand, Long> {
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM DeviceCommand c")
+    long findMaxId();
+}
@@ -0,0 +1,24 @@
+package com.cocopro.backend.repository;
+
+import com.cocopro.backend.model.DeviceControl;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface DeviceControlRepository extends JpaRepository<DeviceControl, String> {
+
+    // Only moves the row forward so concurrent write-throughs cannot store an older state
+    @Transactional
+    @Modifying
+    @Query("UPDATE DeviceControl d SET d.collecting = :collecting, d.motorIROn = :motorIROn, d.version = :version, " +
+            "d.updatedAt = :updatedAt WHERE d.deviceId = :deviceId AND d.version < :version")
+    int updateIfNewer(@Param("deviceId") String deviceId,
+                      @Param("collecting") boolean collecting,
+                      @Param("motorIROn") boolean motorIROn,
+                      @Param("version") long version,
+                      @Param("updatedAt") LocalDateTime updatedAt);
+}
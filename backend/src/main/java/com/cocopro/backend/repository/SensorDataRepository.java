@@ -3,14 +3,30 @@ package com.cocopro.backend.repository;
 
 
 import com.cocopro.backend.model.SensorData;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface SensorDataRepository extends JpaRepository<SensorData, Long> {
+public interface SensorDataRepository extends JpaRepository<SensorData, Long>, SensorDataRepositoryCustom {
     SensorData findTopByOrderByIdDesc();
 
     // Fetch all sensor data sorted by timestamp in ascending order
     List<SensorData> findByTimestampAfterOrderByTimestampAsc(LocalDateTime timestamp);
+
+    // Keyset pagination: the next page starts after the last id of the previous one
+    List<SensorData> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    List<SensorData> findByTimestampAfterAndIdGreaterThanOrderByIdAsc(LocalDateTime timestamp, Long afterId, Limit limit);
+
+    // Cursor read in fetch-size chunks; application.yml turns on useCursorFetch so Connector/J honours the fetch size
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT s FROM SensorData s WHERE s.id > :afterId ORDER BY s.id")
+    Stream<SensorData> streamByIdGreaterThan(Long afterId);
 }
@@ -0,0 +1,11 @@
+package com.cocopro.backend.repository;
+
+import com.cocopro.backend.model.SensorData;
+
+import java.util.List;
+
+public interface SensorDataRepositoryCustom {
+
+    // Insert many readings with multi-row INSERT statements instead of one save() per row
+    int insertBatch(List<SensorData> readings);
+}
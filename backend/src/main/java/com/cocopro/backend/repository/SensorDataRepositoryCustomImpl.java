@@ -0,0 +1,62 @@
+package com.cocopro.backend.repository;
+
+import com.cocopro.backend.model.SensorData;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+public class SensorDataRepositoryCustomImpl implements SensorDataRepositoryCustom {
+
+    // IDENTITY ids stop Hibernate from batching, so batches are written as plain multi-row inserts
+    private static final int ROWS_PER_STATEMENT = 500;
+    private static final String INSERT_PREFIX =
+            "INSERT INTO sensor_data (temperature, humidity, moisture, timestamp, rpm, device_id) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?)";
+    private static final int COLUMNS = 6;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SensorDataRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // All or nothing even when split over several statements, so a failed batch can be retried without duplicates
+    @Override
+    @Transactional
+    public int insertBatch(List<SensorData> readings) {
+        int inserted = 0;
+        for (int from = 0; from < readings.size(); from += ROWS_PER_STATEMENT) {
+            List<SensorData> chunk = readings.subList(from, Math.min(from + ROWS_PER_STATEMENT, readings.size()));
+            inserted += jdbcTemplate.update(buildInsert(chunk.size()), toArgs(chunk));
+        }
+        return inserted;
+    }
+
+    private String buildInsert(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW_PLACEHOLDER.length() + 2));
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDER);
+        }
+        return sql.toString();
+    }
+
+    private Object[] toArgs(List<SensorData> chunk) {
+        Object[] args = new Object[chunk.size() * COLUMNS];
+        int i = 0;
+        for (SensorData reading : chunk) {
+            args[i++] = reading.getTemperature();
+            args[i++] = reading.getHumidity();
+            args[i++] = reading.getMoisture();
+            args[i++] = Timestamp.valueOf(reading.getTimestamp());
+            args[i++] = reading.getRpm();
+            args[i++] = reading.getDeviceId();
+        }
+        return args;
+    }
+}
@@ -0,0 +1,17 @@
+package com.cocopro.backend.repository;
+
+import com.cocopro.backend.model.RollupResolution;
+import com.cocopro.backend.model.SensorRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface SensorRollupRepository extends JpaRepository<SensorRollup, Long> {
+    Optional<SensorRollup> findByDeviceIdAndResolutionAndBucketStart(String deviceId, RollupResolution resolution,
+                                                                     LocalDateTime bucketStart);
+
+    List<SensorRollup> findByDeviceIdAndResolutionAndBucketStartBetweenOrderByBucketStartAsc(
+            String deviceId, RollupResolution resolution, LocalDateTime from, LocalDateTime to);
+}
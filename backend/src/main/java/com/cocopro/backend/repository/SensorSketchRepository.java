@@ -0,0 +1,14 @@
+package com.cocopro.backend.repository;
+
+import com.cocopro.backend.model.SensorSketch;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface SensorSketchRepository extends JpaRepository<SensorSketch, Long> {
+    Optional<SensorSketch> findByDeviceIdAndBucketStart(String deviceId, LocalDateTime bucketStart);
+
+    List<SensorSketch> findByDeviceIdAndBucketStartBetween(String deviceId, LocalDateTime from, LocalDateTime to);
+}
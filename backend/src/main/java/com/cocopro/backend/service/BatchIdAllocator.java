@@ -0,0 +1,104 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.BatchCounter;
+import com.cocopro.backend.repository.BatchCounterRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out batch numbers from blocks reserved in the BATCH_COUNTER row (hi-lo). Reserving a
+ * block is a single atomic UPDATE ... SET last_batch_number = last_batch_number + block, so
+ * several app instances never receive overlapping blocks; within a block numbers come from an
+ * atomic increment in memory, with no lock and no database round trip. The row always holds
+ * the highest number reserved, so a restart continues above everything handed out before.
+ * Numbers left in a block when the app stops are skipped, and with several instances numbers
+ * are unique but not issued in start order.
+ */
+@Service
+public class BatchIdAllocator {
+
+    private static final String COUNTER_ID = "BATCH_COUNTER";
+
+    private final BatchCounterRepository batchCounterRepository;
+    private final TransactionTemplate reserveTransaction;
+    private final int blockSize;
+    private volatile Block block = new Block(1, 0);
+
+    public BatchIdAllocator(BatchCounterRepository batchCounterRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${batch.id.block-size:20}") int blockSize) {
+        this.batchCounterRepository = batchCounterRepository;
+        this.reserveTransaction = new TransactionTemplate(transactionManager);
+        // Commits on its own: a rolled-back caller must not un-reserve numbers that may already be in use
+        this.reserveTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    public int nextBatchNumber() {
+        while (true) {
+            Block current = block;
+            int number = current.next.getAndIncrement();
+            if (number <= current.last) {
+                return number;
+            }
+            // Only the first thread to run dry reserves; the others retry on the block it installs
+            synchronized (this) {
+                if (block == current) {
+                    block = reserve();
+                }
+            }
+        }
+    }
+
+    public String nextBatchId() {
+        return "B" + nextBatchNumber();
+    }
+
+    private Block reserve() {
+        Integer last = advance();
+        if (last == null) {
+            createCounter();
+            last = advance();
+            if (last == null) {
+                throw new IllegalStateException("Batch counter row " + COUNTER_ID + " is missing and could not be created");
+            }
+        }
+        return new Block(last - blockSize + 1, last);
+    }
+
+    // Null when the counter row does not exist yet
+    private Integer advance() {
+        return reserveTransaction.execute(status -> {
+            if (batchCounterRepository.advance(COUNTER_ID, blockSize) == 0) {
+                return null;
+            }
+            return batchCounterRepository.findLastBatchNumber(COUNTER_ID);
+        });
+    }
+
+    // First start against an empty database. BatchCounter is Persistable, so this is a real INSERT: when another
+    // instance created the row in the meantime it fails on the key instead of resetting that row's counter.
+    private void createCounter() {
+        try {
+            reserveTransaction.executeWithoutResult(status -> batchCounterRepository.saveAndFlush(new BatchCounter()));
+        } catch (DataIntegrityViolationException e) {
+            System.out.println("Batch counter row was created concurrently: " + e.getMessage());
+        }
+    }
+
+    private static final class Block {
+        final AtomicInteger next;
+        final int last;
+
+        Block(int first, int last) {
+            this.next = new AtomicInteger(first);
+            this.last = last;
+        }
+    }
+}
@@ -1,48 +1,31 @@
 package com.cocopro.backend.service;
 
-import com.cocopro.backend.model.BatchCounter;
 import com.cocopro.backend.model.BatchProcess;
-import com.cocopro.backend.repository.BatchCounterRepository;
 import com.cocopro.backend.repository.BatchProcessRepository;
-import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 public class BatchProcessService {
     private final BatchProcessRepository batchProcessRepository;
-    private final BatchCounterRepository batchCounterRepository;
-    private int currentBatchNumber;
+    private final BatchIdAllocator batchIdAllocator;
 
-    public BatchProcessService(BatchProcessRepository batchProcessRepository, BatchCounterRepository batchCounterRepository) {
+    public BatchProcessService(BatchProcessRepository batchProcessRepository, BatchIdAllocator batchIdAllocator) {
         this.batchProcessRepository = batchProcessRepository;
-        this.batchCounterRepository = batchCounterRepository;
-    }
-
-    @PostConstruct
-    public void init() {
-        Optional<BatchCounter> counter = batchCounterRepository.findById("BATCH_COUNTER");
-        currentBatchNumber = counter.map(BatchCounter::getLastBatchNumber).orElse(0);
+        this.batchIdAllocator = batchIdAllocator;
     }
 
     @Transactional
     public BatchProcess startBatchProcess(Double initialMoisture, String userEmail) {
-        currentBatchNumber++;
-        String batchId = generateBatchId();
+        String batchId = batchIdAllocator.nextBatchId();
         LocalDateTime startTime = LocalDateTime.now();
 
-        BatchCounter counter = batchCounterRepository.findById("BATCH_COUNTER")
-                .orElse(new BatchCounter());
-        counter.setLastBatchNumber(currentBatchNumber);
-        batchCounterRepository.save(counter);
-
         BatchProcess batchProcess = new BatchProcess(batchId, startTime, initialMoisture);
         batchProcess.setUserEmail(userEmail);
         return batchProcessRepository.save(batchProcess);
@@ -59,10 +42,6 @@ public class BatchProcessService {
         return batchProcessRepository.save(batchProcess);
     }
 
-    private String generateBatchId() {
-        return "B" + currentBatchNumber;
-    }
-
     public List<BatchProcess> getAllBatchProcesses() {
         return batchProcessRepository.findAllByOrderByStartTimeDesc();
     }
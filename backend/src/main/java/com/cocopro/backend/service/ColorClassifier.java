@@ -0,0 +1,183 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.dto.ColorClassifierConfig;
+import com.cocopro.backend.dto.ColorClassifierConfig.ColorClassRule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Classifies raw sensor RGB values with a lookup table over the whole 24-bit color space:
+ * one 2 MB bitset per configured class, with rule order and calibration already applied
+ * when the table is built. Classifying a sample is a bit test per class, with no arithmetic
+ * and no allocation. Changing the rules rebuilds the table off to the side and swaps it in
+ * atomically, so classification never waits on a rebuild.
+ *
+ * Startup rules come from color.classifier.classes, written as
+ * NAME:red=min-max,green=min-max,blue=min-max,spread=min-max;NAME2:... (omitted bounds
+ * are 0-255). The default reproduces the original rule: all channels above 200 with more
+ * than 50 between the strongest and weakest channel is BLACK.
+ */
+@Service
+public class ColorClassifier {
+
+    public static final String BLACK = "BLACK";
+
+    private static final int COLORS = 1 << 24;
+    private static final int MAX_CLASSES = 16;
+
+    private volatile Table table;
+
+    public ColorClassifier(@Value("${color.classifier.classes:BLACK:red=201-255,green=201-255,blue=201-255,spread=51-255}") String classes,
+                           @Value("${color.classifier.default-class:NOT_BLACK}") String defaultClass,
+                           @Value("${color.classifier.gain:1,1,1}") float[] gain,
+                           @Value("${color.classifier.offset:0,0,0}") float[] offset) {
+        this.table = build(new ColorClassifierConfig(parseRules(classes), defaultClass, gain, offset));
+    }
+
+    public String classify(int red, int green, int blue) {
+        Table current = table;
+        int index = (clamp(red) << 16) | (clamp(green) << 8) | clamp(blue);
+        long[][] bitsets = current.bitsets;
+        for (int k = 0; k < bitsets.length; k++) {
+            if ((bitsets[k][index >>> 6] & (1L << index)) != 0) {
+                return current.names[k];
+            }
+        }
+        return current.config.getDefaultClass();
+    }
+
+    public ColorClassifierConfig getConfig() {
+        return table.config;
+    }
+
+    // Validates and rebuilds; throws IllegalArgumentException and keeps the current table when the config is invalid
+    public void update(ColorClassifierConfig config) {
+        Table rebuilt = build(config);
+        table = rebuilt;
+        System.out.println("Color classifier rebuilt with classes " + List.of(rebuilt.names));
+    }
+
+    private static Table build(ColorClassifierConfig config) {
+        validate(config);
+        List<ColorClassRule> rules = config.getClasses();
+        int[][] calibrated = new int[3][256];
+        for (int channel = 0; channel < 3; channel++) {
+            for (int raw = 0; raw < 256; raw++) {
+                calibrated[channel][raw] = clamp(Math.round(raw * config.getGain()[channel] + config.getOffset()[channel]));
+            }
+        }
+
+        long[][] bitsets = new long[rules.size()][COLORS / 64];
+        String[] names = new String[rules.size()];
+        for (int k = 0; k < rules.size(); k++) {
+            names[k] = rules.get(k).getName();
+        }
+        for (int red = 0; red < 256; red++) {
+            int r = calibrated[0][red];
+            for (int green = 0; green < 256; green++) {
+                int g = calibrated[1][green];
+                for (int blue = 0; blue < 256; blue++) {
+                    int b = calibrated[2][blue];
+                    int spread = Math.max(r, Math.max(g, b)) - Math.min(r, Math.min(g, b));
+                    for (int k = 0; k < rules.size(); k++) {
+                        if (matches(rules.get(k), r, g, b, spread)) {
+                            int index = (red << 16) | (green << 8) | blue;
+                            bitsets[k][index >>> 6] |= 1L << index;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return new Table(config, names, bitsets);
+    }
+
+    private static boolean matches(ColorClassRule rule, int r, int g, int b, int spread) {
+        return within(rule.getRed(), r) && within(rule.getGreen(), g) && within(rule.getBlue(), b)
+                && within(rule.getSpread(), spread);
+    }
+
+    private static boolean within(int[] range, int value) {
+        return value >= range[0] && value <= range[1];
+    }
+
+    private static void validate(ColorClassifierConfig config) {
+        if (config.getDefaultClass() == null || config.getDefaultClass().isBlank()) {
+            throw new IllegalArgumentException("defaultClass is required");
+        }
+        if (config.getClasses() == null || config.getClasses().size() > MAX_CLASSES) {
+            throw new IllegalArgumentException("Between 0 and " + MAX_CLASSES + " classes are supported");
+        }
+        if (!validCalibration(config.getGain()) || !validCalibration(config.getOffset())) {
+            throw new IllegalArgumentException("gain and offset need one value per channel");
+        }
+        Set<String> names = new HashSet<>();
+        names.add(config.getDefaultClass());
+        for (ColorClassRule rule : config.getClasses()) {
+            if (rule.getName() == null || rule.getName().isBlank() || !names.add(rule.getName())) {
+                throw new IllegalArgumentException("Class names must be present and unique: " + rule.getName());
+            }
+            for (int[] range : new int[][]{rule.getRed(), rule.getGreen(), rule.getBlue(), rule.getSpread()}) {
+                if (range == null || range.length != 2 || range[0] < 0 || range[1] > 255 || range[0] > range[1]) {
+                    throw new IllegalArgumentException("Ranges of " + rule.getName() + " must be [min, max] within 0-255");
+                }
+            }
+        }
+    }
+
+    private static boolean validCalibration(float[] values) {
+        if (values == null || values.length != 3) {
+            return false;
+        }
+        for (float value : values) {
+            if (!Float.isFinite(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // "BLACK:red=201-255,spread=51-255;BROWN:red=90-160" -> rules
+    static List<ColorClassRule> parseRules(String spec) {
+        List<ColorClassRule> rules = new ArrayList<>();
+        if (spec == null || spec.isBlank()) {
+            return rules;
+        }
+        for (String entry : spec.split(";")) {
+            String[] nameAndBounds = entry.trim().split(":", 2);
+            ColorClassRule rule = new ColorClassRule();
+            rule.setName(nameAndBounds[0].trim());
+            if (nameAndBounds.length > 1 && !nameAndBounds[1].isBlank()) {
+                for (String bound : nameAndBounds[1].split(",")) {
+                    String[] keyAndRange = bound.trim().split("=", 2);
+                    String[] minMax = keyAndRange.length == 2 ? keyAndRange[1].split("-", 2) : new String[0];
+                    if (minMax.length != 2) {
+                        throw new IllegalArgumentException("Bad color class bound '" + bound + "' in " + rule.getName());
+                    }
+                    int[] range = {Integer.parseInt(minMax[0].trim()), Integer.parseInt(minMax[1].trim())};
+                    switch (keyAndRange[0].trim()) {
+                        case "red" -> rule.setRed(range);
+                        case "green" -> rule.setGreen(range);
+                        case "blue" -> rule.setBlue(range);
+                        case "spread" -> rule.setSpread(range);
+                        default -> throw new IllegalArgumentException("Unknown color class bound '" + keyAndRange[0] + "'");
+                    }
+                }
+            }
+            rules.add(rule);
+        }
+        return rules;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    private record Table(ColorClassifierConfig config, String[] names, long[][] bitsets) {
+    }
+}
@@ -0,0 +1,133 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.dto.ColorBatchResult;
+import com.cocopro.backend.model.ColorData;
+import com.cocopro.backend.model.SensorData;
+import com.cocopro.backend.repository.ColorDataRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classifies color samples, one at a time or as a batch, and hands them to the
+ * ColorStateProcessor, which stores state changes, and to ColorRollupService, which keeps
+ * counts and channel histograms per bucket. Raw samples are only
+ * stored as color_data rows when color.state.store-samples is on, in a single saveAll per batch.
+ * Resent samples (same device seq) are classified again for the response but not counted twice.
+ */
+@Service
+public class ColorDataService {
+
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    private final ColorDataRepository repository;
+    private final ColorClassifier classifier;
+    private final DeviceSequenceService sequenceService;
+    private final LatestSnapshotService snapshotService;
+    private final ColorStateProcessor stateProcessor;
+    private final ColorRollupService rollupService;
+    private final DeviceLivenessService livenessService;
+    private final boolean storeSamples;
+
+    public ColorDataService(ColorDataRepository repository,
+                            ColorClassifier classifier,
+                            DeviceSequenceService sequenceService,
+                            LatestSnapshotService snapshotService,
+                            ColorStateProcessor stateProcessor,
+                            ColorRollupService rollupService,
+                            DeviceLivenessService livenessService,
+                            @Value("${color.state.store-samples:false}") boolean storeSamples) {
+        this.repository = repository;
+        this.classifier = classifier;
+        this.sequenceService = sequenceService;
+        this.snapshotService = snapshotService;
+        this.stateProcessor = stateProcessor;
+        this.rollupService = rollupService;
+        this.livenessService = livenessService;
+        this.storeSamples = storeSamples;
+    }
+
+    // Returns the sample's class
+    public String save(ColorData colorData) {
+        classify(colorData);
+        // A resend gets the same answer but is not counted twice
+        if (claim(colorData)) {
+            ColorData saved = colorData;
+            if (storeSamples) {
+                try {
+                    saved = repository.save(colorData);
+                } catch (RuntimeException e) {
+                    release(colorData);
+                    throw e;
+                }
+            }
+            stateProcessor.process(saved);
+            rollupService.record(saved);
+            snapshotService.recordColor(saved);
+        }
+        return colorData.getColorClass();
+    }
+
+    public ColorBatchResult saveBatch(List<ColorData> samples) {
+        ColorBatchResult result = new ColorBatchResult();
+        List<ColorData> fresh = new ArrayList<>(samples.size());
+        for (ColorData sample : samples) {
+            classify(sample);
+            result.getClasses().add(sample.getColorClass());
+            if (claim(sample)) {
+                fresh.add(sample);
+            } else {
+                result.setDuplicates(result.getDuplicates() + 1);
+            }
+        }
+
+        List<ColorData> saved = fresh;
+        if (storeSamples) {
+            try {
+                saved = repository.saveAll(fresh);
+            } catch (RuntimeException e) {
+                fresh.forEach(this::release);
+                throw e;
+            }
+        }
+        result.setAccepted(saved.size());
+
+        // Only the newest sample can become /latest
+        ColorData newest = null;
+        for (ColorData sample : saved) {
+            stateProcessor.process(sample);
+            rollupService.record(sample);
+            if (newest == null || !sample.getTimestamp().isBefore(newest.getTimestamp())) {
+                newest = sample;
+            }
+        }
+        if (newest != null) {
+            snapshotService.recordColor(newest);
+        }
+        return result;
+    }
+
+    private void classify(ColorData colorData) {
+        if (colorData.getDeviceId() == null || colorData.getDeviceId().isBlank()) {
+            colorData.setDeviceId(SensorData.DEFAULT_DEVICE_ID);
+        }
+        livenessService.touch(DeviceSequenceService.COLOR, colorData.getDeviceId());
+        if (colorData.getTimestamp() == null) {
+            colorData.setTimestamp(LocalDateTime.now());
+        }
+        String colorClass = classifier.classify(colorData.getRed(), colorData.getGreen(), colorData.getBlue());
+        colorData.setColorClass(colorClass);
+        colorData.setBlackDetected(ColorClassifier.BLACK.equals(colorClass));
+    }
+
+    private boolean claim(ColorData colorData) {
+        return sequenceService.claim(DeviceSequenceService.COLOR, colorData.getDeviceId(), colorData.getBoot(), colorData.getSeq());
+    }
+
+    private void release(ColorData colorData) {
+        sequenceService.release(DeviceSequenceService.COLOR, colorData.getDeviceId(), colorData.getBoot(), colorData.getSeq());
+    }
+}
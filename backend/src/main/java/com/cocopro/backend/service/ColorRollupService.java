@@ -0,0 +1,192 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.dto.ColorStats;
+import com.cocopro.backend.model.ColorData;
+import com.cocopro.backend.model.ColorRollup;
+import com.cocopro.backend.model.RollupResolution;
+import com.cocopro.backend.repository.ColorRollupRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains per-class sample counts and RGB channel histograms per color sensor at minute,
+ * hour and day resolution, the color counterpart of SensorRollupService. Samples are folded
+ * into in-memory partials as they arrive and merged into color_rollups by a background task,
+ * so reject-rate and histogram queries read one row per bucket instead of raw color_data.
+ */
+@Service
+public class ColorRollupService {
+
+    private static final QuantileSketch.Scale CHANNEL = QuantileSketch.Scale.COLOR_CHANNEL;
+
+    private final ColorRollupRepository colorRollupRepository;
+    private final long flushIntervalMs;
+    private final Map<RollupKey, Partial> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    public ColorRollupService(ColorRollupRepository colorRollupRepository,
+                              @Value("${color.rollup.flush-interval-ms:10000}") long flushIntervalMs) {
+        this.colorRollupRepository = colorRollupRepository;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "color-rollup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    // Expects a classified sample
+    public void record(ColorData sample) {
+        for (RollupResolution resolution : RollupResolution.values()) {
+            RollupKey key = new RollupKey(sample.getDeviceId(), resolution,
+                    resolution.bucketStart(sample.getTimestamp()));
+            pending.compute(key, (k, partial) -> {
+                if (partial == null) {
+                    partial = new Partial();
+                }
+                partial.add(sample);
+                return partial;
+            });
+        }
+    }
+
+    // Stored buckets plus whatever has not been flushed yet; histograms are folded into the given number of bins
+    public ColorStats stats(String deviceId, RollupResolution resolution, LocalDateTime from, LocalDateTime to, int bins) {
+        LocalDateTime firstBucket = resolution.bucketStart(from);
+        Map<LocalDateTime, Partial> buckets = new TreeMap<>();
+        for (ColorRollup row : colorRollupRepository.findByDeviceIdAndResolutionAndBucketStartBetweenOrderByBucketStartAsc(
+                deviceId, resolution, firstBucket, to)) {
+            Partial bucket = new Partial();
+            bucket.merge(row);
+            buckets.put(row.getBucketStart(), bucket);
+        }
+        for (RollupKey key : pending.keySet()) {
+            if (!key.deviceId().equals(deviceId) || key.resolution() != resolution
+                    || key.bucketStart().isBefore(firstBucket) || key.bucketStart().isAfter(to)) {
+                continue;
+            }
+            pending.computeIfPresent(key, (k, partial) -> {
+                buckets.computeIfAbsent(k.bucketStart(), start -> new Partial()).merge(partial);
+                return partial;
+            });
+        }
+
+        ColorStats stats = new ColorStats();
+        stats.setDeviceId(deviceId);
+        stats.setBucket(resolution);
+        stats.setFrom(from);
+        stats.setTo(to);
+        Partial total = new Partial();
+        buckets.forEach((bucketStart, bucket) -> {
+            stats.getBuckets().add(bucket.toStats(bucketStart, bins));
+            total.merge(bucket);
+        });
+        stats.setTotal(total.toStats(null, bins));
+        return stats;
+    }
+
+    synchronized void flush() {
+        for (RollupKey key : pending.keySet()) {
+            Partial partial = pending.remove(key);
+            if (partial == null) {
+                continue;
+            }
+            try {
+                ColorRollup row = colorRollupRepository
+                        .findByDeviceIdAndResolutionAndBucketStart(key.deviceId(), key.resolution(), key.bucketStart())
+                        .orElseGet(() -> new ColorRollup(key.deviceId(), key.resolution(), key.bucketStart()));
+                Partial merged = new Partial();
+                merged.merge(row);
+                merged.merge(partial);
+                merged.writeTo(row);
+                colorRollupRepository.save(row);
+            } catch (RuntimeException e) {
+                // Keep the partial so the next flush retries it together with newer samples
+                pending.merge(key, partial, (newer, failed) -> {
+                    newer.merge(failed);
+                    return newer;
+                });
+                System.err.println("Failed to flush color rollup " + key + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private record RollupKey(String deviceId, RollupResolution resolution, LocalDateTime bucketStart) {
+    }
+
+    // In-memory form of a bucket; rows are decoded into one to merge and encoded back to save
+    private static class Partial {
+        long count;
+        final Map<String, Long> classes = new HashMap<>();
+        final QuantileSketch red = new QuantileSketch(CHANNEL);
+        final QuantileSketch green = new QuantileSketch(CHANNEL);
+        final QuantileSketch blue = new QuantileSketch(CHANNEL);
+
+        void add(ColorData sample) {
+            count++;
+            classes.merge(sample.getColorClass(), 1L, Long::sum);
+            red.add(sample.getRed());
+            green.add(sample.getGreen());
+            blue.add(sample.getBlue());
+        }
+
+        void merge(Partial other) {
+            count += other.count;
+            other.classes.forEach((colorClass, classCount) -> classes.merge(colorClass, classCount, Long::sum));
+            red.merge(other.red);
+            green.merge(other.green);
+            blue.merge(other.blue);
+        }
+
+        void merge(ColorRollup row) {
+            count += row.getCount();
+            row.getClassCounts().forEach((colorClass, classCount) -> classes.merge(colorClass, classCount, Long::sum));
+            red.merge(row.getRedHistogram());
+            green.merge(row.getGreenHistogram());
+            blue.merge(row.getBlueHistogram());
+        }
+
+        void writeTo(ColorRollup row) {
+            row.setCount(count);
+            row.getClassCounts().putAll(classes);
+            row.setRedHistogram(red.toBytes());
+            row.setGreenHistogram(green.toBytes());
+            row.setBlueHistogram(blue.toBytes());
+        }
+
+        ColorStats.Bucket toStats(LocalDateTime bucketStart, int bins) {
+            ColorStats.Bucket bucket = new ColorStats.Bucket();
+            bucket.setBucketStart(bucketStart);
+            bucket.setCount(count);
+            bucket.getClasses().putAll(classes);
+            bucket.setRejectRate(count == 0 ? 0 : (double) classes.getOrDefault(ColorClassifier.BLACK, 0L) / count);
+            bucket.setRed(red.histogram(bins));
+            bucket.setGreen(green.histogram(bins));
+            bucket.setBlue(blue.histogram(bins));
+            return bucket;
+        }
+    }
+}
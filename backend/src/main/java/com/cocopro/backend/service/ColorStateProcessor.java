@@ -0,0 +1,227 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.ColorData;
+import com.cocopro.backend.model.ColorTransition;
+import com.cocopro.backend.repository.ColorTransitionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns each color sensor's sample stream into a debounced state. The state is the class
+ * holding a strict majority of the last color.state.window samples, so a single noisy
+ * reading cannot flip it. Only changes of state are stored, written behind so a slow
+ * database never fails a device post; transitions MySQL rejects outright are logged and
+ * dropped rather than retried. Per-minute sample counts per class are kept in memory
+ * for the last day; longer-range counts come from ColorRollupService.
+ */
+@Service
+public class ColorStateProcessor {
+
+    private static final long RECENT_MINUTES = TimeUnit.DAYS.toMinutes(1);
+
+    private final ColorTransitionRepository transitionRepository;
+    private final int window;
+    private final long flushIntervalMs;
+    private final Map<String, DeviceState> devices = new ConcurrentHashMap<>();
+    private final Map<CountKey, LongAdder> recentCounts = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<ColorTransition> pendingTransitions = new ConcurrentLinkedQueue<>();
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder transitions = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private ScheduledExecutorService flusher;
+
+    public ColorStateProcessor(ColorTransitionRepository transitionRepository,
+                               @Value("${color.state.window:5}") int window,
+                               @Value("${color.state.flush-interval-ms:10000}") long flushIntervalMs) {
+        this.transitionRepository = transitionRepository;
+        this.window = Math.max(1, window);
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "color-state");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    // Expects a classified sample; returns true when it changed the device's debounced state
+    public boolean process(ColorData sample) {
+        samples.increment();
+        LocalDateTime minute = sample.getTimestamp().truncatedTo(ChronoUnit.MINUTES);
+        CountKey countKey = new CountKey(sample.getDeviceId(), minute, sample.getColorClass());
+        recentCounts.computeIfAbsent(countKey, key -> new LongAdder()).increment();
+
+        DeviceState state = devices.computeIfAbsent(sample.getDeviceId(), key -> new DeviceState(window));
+        ColorTransition transition = state.vote(sample);
+        if (transition == null) {
+            return false;
+        }
+        transitions.increment();
+        pendingTransitions.add(transition);
+        return true;
+    }
+
+    // Debounced class per device
+    public Map<String, String> getStates() {
+        Map<String, String> states = new TreeMap<>();
+        devices.forEach((deviceId, state) -> {
+            String current = state.current();
+            if (current != null) {
+                states.put(deviceId, current);
+            }
+        });
+        return states;
+    }
+
+    // Per-minute sample counts per class for the last few minutes, oldest first
+    public List<Map<String, Object>> recentCounts(String deviceId, int minutes) {
+        LocalDateTime since = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).minusMinutes(minutes - 1L);
+        Map<LocalDateTime, Map<String, Long>> byMinute = new TreeMap<>();
+        recentCounts.forEach((key, count) -> {
+            if (key.deviceId().equals(deviceId) && !key.minute().isBefore(since)) {
+                byMinute.computeIfAbsent(key.minute(), minute -> new TreeMap<>()).put(key.colorClass(), count.sum());
+            }
+        });
+        List<Map<String, Object>> result = new ArrayList<>(byMinute.size());
+        byMinute.forEach((minute, counts) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("minute", minute);
+            entry.put("counts", counts);
+            result.add(entry);
+        });
+        return result;
+    }
+
+    public List<ColorTransition> transitions(String deviceId, LocalDateTime from, LocalDateTime to) {
+        return transitionRepository.findByDeviceIdAndTimestampBetweenOrderByTimestampAsc(deviceId, from, to);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("samples", samples.sum());
+        stats.put("transitions", transitions.sum());
+        stats.put("pendingTransitions", pendingTransitions.size());
+        stats.put("deadLettered", deadLettered.sum());
+        return stats;
+    }
+
+    synchronized void flush() {
+        List<ColorTransition> batch = new ArrayList<>();
+        ColorTransition transition;
+        while ((transition = pendingTransitions.poll()) != null) {
+            batch.add(transition);
+        }
+        if (!batch.isEmpty()) {
+            try {
+                transitionRepository.saveAll(batch);
+            } catch (RuntimeException e) {
+                System.err.println("Failed to store " + batch.size() + " color transitions: " + e.getMessage());
+                storeSingly(batch);
+            }
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).minusMinutes(RECENT_MINUTES);
+        recentCounts.keySet().removeIf(key -> key.minute().isBefore(cutoff));
+    }
+
+    // Rows MySQL rejects are logged and dropped; on any other error the rest are retried on the next flush
+    private void storeSingly(List<ColorTransition> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            ColorTransition transition = batch.get(i);
+            // The rolled back batch insert may have assigned an id that was never stored
+            transition.setId(null);
+            try {
+                transitionRepository.save(transition);
+            } catch (DataIntegrityViolationException e) {
+                deadLettered.increment();
+                System.err.println("Dropping color transition MySQL rejects (device " + transition.getDeviceId() + ", "
+                        + transition.getTimestamp() + ", " + transition.getFromClass() + " -> "
+                        + transition.getToClass() + "): " + e.getMostSpecificCause().getMessage());
+            } catch (RuntimeException e) {
+                // Still in order ahead of newer transitions
+                List<ColorTransition> retry = new ArrayList<>(batch.subList(i, batch.size()));
+                retry.forEach(pending -> pending.setId(null));
+                retry.addAll(pendingTransitions);
+                pendingTransitions.clear();
+                pendingTransitions.addAll(retry);
+                System.err.println("Failed to store color transition, retrying " + (batch.size() - i)
+                        + " on the next flush: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private record CountKey(String deviceId, LocalDateTime minute, String colorClass) {
+    }
+
+    // Sliding window of the last classes; only the incoming class can newly gain a majority
+    private static final class DeviceState {
+        private final String[] recent;
+        private int next;
+        private int filled;
+        private String current;
+        private long samplesInCurrent;
+
+        DeviceState(int window) {
+            this.recent = new String[window];
+        }
+
+        synchronized String current() {
+            return current;
+        }
+
+        synchronized ColorTransition vote(ColorData sample) {
+            String colorClass = sample.getColorClass();
+            recent[next] = colorClass;
+            next = (next + 1) % recent.length;
+            filled = Math.min(filled + 1, recent.length);
+            samplesInCurrent++;
+            if (colorClass.equals(current)) {
+                return null;
+            }
+            int votes = 0;
+            for (int i = 0; i < filled; i++) {
+                if (colorClass.equals(recent[i])) {
+                    votes++;
+                }
+            }
+            if (votes * 2 <= recent.length) {
+                return null;
+            }
+            ColorTransition transition = new ColorTransition(sample.getDeviceId(), sample.getTimestamp(), current,
+                    colorClass, current == null ? 0 : samplesInCurrent - 1, sample.getRed(), sample.getGreen(),
+                    sample.getBlue());
+            current = colorClass;
+            samplesInCurrent = 1;
+            return transition;
+        }
+    }
+}
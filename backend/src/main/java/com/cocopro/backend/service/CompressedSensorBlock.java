@@ -0,0 +1,263 @@
+package com.cocopro.backend.service;
+
+import java.util.Arrays;
+
+/**
+ * Immutable, Gorilla-compressed run of one device's readings in timestamp order. Timestamps
+ * are stored as delta-of-delta and every value column as the XOR with its previous value, so a
+ * reading that barely changed costs a few bits instead of a full entity. The time range is
+ * kept uncompressed in the header, which lets scans skip whole blocks and stop decoding as
+ * soon as they pass the end of the requested range.
+ */
+final class CompressedSensorBlock {
+
+    private final long[] words;
+    private final int count;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+
+    private CompressedSensorBlock(long[] words, int count, long minTimestamp, long maxTimestamp) {
+        this.words = words;
+        this.count = count;
+        this.minTimestamp = minTimestamp;
+        this.maxTimestamp = maxTimestamp;
+    }
+
+    // Timestamps must be in ascending order
+    static CompressedSensorBlock encode(long[] timestamps, float[] temperature, float[] humidity,
+                                        int[] moisture, int[] rpm, int count) {
+        BitWriter writer = new BitWriter(count);
+        XorColumn temp = new XorColumn();
+        XorColumn hum = new XorColumn();
+        XorColumn moist = new XorColumn();
+        XorColumn revs = new XorColumn();
+
+        long previousTimestamp = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                writer.write(timestamps[0], 64);
+            } else {
+                long delta = timestamps[i] - previousTimestamp;
+                writeDeltaOfDelta(writer, delta - previousDelta);
+                previousDelta = delta;
+            }
+            previousTimestamp = timestamps[i];
+
+            temp.write(writer, Float.floatToRawIntBits(temperature[i]));
+            hum.write(writer, Float.floatToRawIntBits(humidity[i]));
+            moist.write(writer, moisture[i]);
+            revs.write(writer, rpm[i]);
+        }
+        return new CompressedSensorBlock(writer.toArray(), count, timestamps[0], timestamps[count - 1]);
+    }
+
+    boolean overlaps(long fromMillis, long toMillis) {
+        return minTimestamp <= toMillis && maxTimestamp >= fromMillis;
+    }
+
+    // Appends the readings within [fromMillis, toMillis] and stops decoding past the end of the range
+    void decode(long fromMillis, long toMillis, SensorSeriesBuilder out) {
+        BitReader reader = new BitReader(words);
+        XorColumn temp = new XorColumn();
+        XorColumn hum = new XorColumn();
+        XorColumn moist = new XorColumn();
+        XorColumn revs = new XorColumn();
+
+        long timestamp = 0;
+        long delta = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                timestamp = reader.read(64);
+            } else {
+                delta += readDeltaOfDelta(reader);
+                timestamp += delta;
+            }
+            if (timestamp > toMillis) {
+                return;
+            }
+
+            int tempBits = temp.read(reader);
+            int humBits = hum.read(reader);
+            int moistValue = moist.read(reader);
+            int revsValue = revs.read(reader);
+            if (timestamp >= fromMillis) {
+                out.add(timestamp, Float.intBitsToFloat(tempBits), Float.intBitsToFloat(humBits), moistValue, revsValue);
+            }
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    long sizeInBytes() {
+        return (long) words.length * Long.BYTES;
+    }
+
+    private static void writeDeltaOfDelta(BitWriter writer, long deltaOfDelta) {
+        long zigzag = (deltaOfDelta << 1) ^ (deltaOfDelta >> 63);
+        if (zigzag == 0) {
+            writer.write(0b0, 1);
+        } else if (zigzag < 1L << 7) {
+            writer.write(0b10, 2);
+            writer.write(zigzag, 7);
+        } else if (zigzag < 1L << 9) {
+            writer.write(0b110, 3);
+            writer.write(zigzag, 9);
+        } else if (zigzag < 1L << 12) {
+            writer.write(0b1110, 4);
+            writer.write(zigzag, 12);
+        } else if (zigzag < 1L << 32) {
+            writer.write(0b11110, 5);
+            writer.write(zigzag, 32);
+        } else {
+            writer.write(0b11111, 5);
+            writer.write(zigzag, 64);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader reader) {
+        int prefix = 0;
+        while (prefix < 5 && reader.read(1) == 1) {
+            prefix++;
+        }
+        long zigzag = switch (prefix) {
+            case 0 -> 0;
+            case 1 -> reader.read(7);
+            case 2 -> reader.read(9);
+            case 3 -> reader.read(12);
+            case 4 -> reader.read(32);
+            default -> reader.read(64);
+        };
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    // XOR state of one 32-bit column, shared by the encoder and decoder
+    private static final class XorColumn {
+        private boolean first = true;
+        private int previous;
+        private int leading = -1;
+        private int trailing;
+
+        void write(BitWriter writer, int value) {
+            if (first) {
+                writer.write(value, 32);
+                first = false;
+                previous = value;
+                return;
+            }
+            int xor = value ^ previous;
+            previous = value;
+            if (xor == 0) {
+                writer.write(0b0, 1);
+                return;
+            }
+
+            int newLeading = Integer.numberOfLeadingZeros(xor);
+            int newTrailing = Integer.numberOfTrailingZeros(xor);
+            if (leading >= 0 && newLeading >= leading && newTrailing >= trailing) {
+                // The changed bits fit in the previous window, so its position is not repeated
+                writer.write(0b10, 2);
+                writer.write(xor >>> trailing, 32 - leading - trailing);
+            } else {
+                int meaningful = 32 - newLeading - newTrailing;
+                writer.write(0b11, 2);
+                writer.write(newLeading, 5);
+                writer.write(meaningful - 1, 5);
+                writer.write(xor >>> newTrailing, meaningful);
+                leading = newLeading;
+                trailing = newTrailing;
+            }
+        }
+
+        int read(BitReader reader) {
+            if (first) {
+                first = false;
+                previous = (int) reader.read(32);
+                return previous;
+            }
+            if (reader.read(1) == 0) {
+                return previous;
+            }
+            if (reader.read(1) == 1) {
+                leading = (int) reader.read(5);
+                int meaningful = (int) reader.read(5) + 1;
+                trailing = 32 - leading - meaningful;
+            }
+            int xor = (int) reader.read(32 - leading - trailing) << trailing;
+            previous ^= xor;
+            return previous;
+        }
+    }
+
+    private static final class BitWriter {
+        private long[] words;
+        private int position;
+
+        BitWriter(int expectedPoints) {
+            // Roughly 64 bits per reading before the first resize
+            words = new long[Math.max(4, expectedPoints)];
+        }
+
+        void write(long value, int bits) {
+            if (bits == 0) {
+                return;
+            }
+            int index = position >>> 6;
+            if (index + 1 >= words.length) {
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+            if (bits < 64) {
+                value &= (1L << bits) - 1;
+            }
+            int free = 64 - (position & 63);
+            if (bits <= free) {
+                words[index] |= value << (free - bits);
+            } else {
+                int spill = bits - free;
+                words[index] |= value >>> spill;
+                words[index + 1] |= value << (64 - spill);
+            }
+            position += bits;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(words, (position + 63) >>> 6);
+        }
+    }
+
+    private static final class BitReader {
+        private final long[] words;
+        private int position;
+
+        BitReader(long[] words) {
+            this.words = words;
+        }
+
+        long read(int bits) {
+            if (bits == 0) {
+                return 0;
+            }
+            int index = position >>> 6;
+            int available = 64 - (position & 63);
+            long result;
+            if (bits <= available) {
+                result = words[index] >>> (available - bits);
+            } else {
+                int spill = bits - available;
+                result = (words[index] << spill) | (words[index + 1] >>> (64 - spill));
+            }
+            position += bits;
+            return bits == 64 ? result : result & ((1L << bits) - 1);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.cocopro.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control for device ingest: a token bucket per device, a global bucket shared by
+ * all devices, and a bulkhead capping how many device requests are in flight at once, so a
+ * runaway device loop cannot take the request threads and database connections the
+ * dashboards need. Everything is checked without blocking; refused requests are told when
+ * to retry.
+ */
+@Service
+public class DeviceAdmissionService {
+
+    private static final int MAX_TRACKED_DEVICES = 10000;
+    private static final long IDLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final boolean enabled;
+    private final double deviceRate;
+    private final int deviceBurst;
+    private final TokenBucket global;
+    private final Semaphore inFlight;
+    private final int maxConcurrent;
+    private final Map<String, TokenBucket> devices = new ConcurrentHashMap<>();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder deviceLimited = new LongAdder();
+    private final LongAdder globalLimited = new LongAdder();
+    private final LongAdder busy = new LongAdder();
+
+    public DeviceAdmissionService(@Value("${sensor.admission.enabled:true}") boolean enabled,
+                                  @Value("${sensor.admission.device-rate:2}") double deviceRate,
+                                  @Value("${sensor.admission.device-burst:10}") int deviceBurst,
+                                  @Value("${sensor.admission.global-rate:200}") double globalRate,
+                                  @Value("${sensor.admission.global-burst:400}") int globalBurst,
+                                  @Value("${sensor.admission.max-concurrent:16}") int maxConcurrent) {
+        this.enabled = enabled;
+        this.deviceRate = deviceRate;
+        this.deviceBurst = deviceBurst;
+        this.global = new TokenBucket(globalRate, globalBurst);
+        this.maxConcurrent = maxConcurrent;
+        this.inFlight = new Semaphore(maxConcurrent);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Returns 0 when the request may proceed, otherwise the nanoseconds the device should wait
+    public long admit(String deviceKey) {
+        long now = System.nanoTime();
+        long wait = bucket(deviceKey, now).tryAcquire(now);
+        if (wait > 0) {
+            deviceLimited.increment();
+            return wait;
+        }
+        // Checked second so a device over its own limit does not drain the shared budget
+        wait = global.tryAcquire(now);
+        if (wait > 0) {
+            globalLimited.increment();
+            return wait;
+        }
+        return 0;
+    }
+
+    // Bulkhead around the request itself; every successful enter() must be paired with exit()
+    public boolean enter() {
+        if (inFlight.tryAcquire()) {
+            admitted.increment();
+            return true;
+        }
+        busy.increment();
+        return false;
+    }
+
+    public void exit() {
+        inFlight.release();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("admitted", admitted.sum());
+        stats.put("deviceLimited", deviceLimited.sum());
+        stats.put("globalLimited", globalLimited.sum());
+        stats.put("busy", busy.sum());
+        stats.put("inFlight", maxConcurrent - inFlight.availablePermits());
+        stats.put("trackedDevices", devices.size());
+        return stats;
+    }
+
+    private TokenBucket bucket(String deviceKey, long now) {
+        TokenBucket bucket = devices.get(deviceKey);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (devices.size() >= MAX_TRACKED_DEVICES) {
+            devices.values().removeIf(candidate -> candidate.isIdleSince(now, IDLE_NANOS));
+        }
+        return devices.computeIfAbsent(deviceKey, key -> new TokenBucket(deviceRate, deviceBurst));
+    }
+}
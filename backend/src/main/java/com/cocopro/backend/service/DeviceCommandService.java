@@ -0,0 +1,243 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.DeviceCommand;
+import com.cocopro.backend.repository.DeviceCommandRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Low-latency command channel to dryers. A device either collects its pending commands with
+ * its regular sync, or holds a long-poll request open, which issuing a command completes
+ * immediately instead of waiting for the next 5 second poll.
+ * A command is queued and handed to the waiting device before anything touches the database;
+ * its row is written afterwards on a separate thread (and again when the device acknowledges
+ * it), so a slow or unavailable MySQL never delays or blocks an emergency stop. Ids are
+ * assigned here, continuing from the highest stored id, so the device can acknowledge a
+ * command whose row is not written yet. Issue-to-delivery / issue-to-ack latencies are
+ * tracked for the stats endpoint.
+ *
+ * Pending commands, waiting long-polls and the id counter all live in this instance, so the
+ * service runs in a single backend instance. Should ids ever collide (a second instance, or
+ * a restart racing a late write) the INSERT fails on the key and the command is not stored,
+ * rather than overwriting the other command's row.
+ */
+@Service
+public class DeviceCommandService {
+
+    private static final long OUTSTANDING_EXPIRY_NANOS = TimeUnit.HOURS.toNanos(1);
+    private static final int MAX_PENDING_PER_DEVICE = 32;
+
+    private final DeviceCommandRepository deviceCommandRepository;
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final Map<Long, Outstanding> outstanding = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private ExecutorService writer;
+
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder acknowledged = new LongAdder();
+    private final LongAdder deliveryMicrosTotal = new LongAdder();
+    private final LongAdder ackMicrosTotal = new LongAdder();
+    private final AtomicLong deliveryMicrosMax = new AtomicLong();
+    private final AtomicLong ackMicrosMax = new AtomicLong();
+
+    public DeviceCommandService(DeviceCommandRepository deviceCommandRepository) {
+        this.deviceCommandRepository = deviceCommandRepository;
+    }
+
+    @PostConstruct
+    public void start() {
+        nextId.set(deviceCommandRepository.findMaxId());
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "device-commands");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    public DeviceCommand issue(String deviceId, String type) {
+        DeviceCommand command = new DeviceCommand(deviceId, type);
+        command.setId(nextId.incrementAndGet());
+        long now = System.nanoTime();
+        // Firmware that never acknowledges must not make the outstanding map grow forever
+        outstanding.values().removeIf(entry -> now - entry.issuedNanos > OUTSTANDING_EXPIRY_NANOS);
+        outstanding.put(command.getId(), new Outstanding(command, now));
+        issued.increment();
+
+        Channel channel = channel(deviceId);
+        DeferredResult<ResponseEntity<List<DeviceCommand>>> waiter;
+        synchronized (channel) {
+            // A device that never polls only needs its most recent commands
+            if (channel.pending.size() >= MAX_PENDING_PER_DEVICE) {
+                channel.pending.poll();
+            }
+            channel.pending.add(command);
+            waiter = channel.waiter;
+            channel.waiter = null;
+        }
+        if (waiter != null) {
+            deliverTo(waiter, channel);
+        }
+        persist(command);
+        return command;
+    }
+
+    // Completes immediately when commands are pending, otherwise parks the request until one is issued
+    public DeferredResult<ResponseEntity<List<DeviceCommand>>> poll(String deviceId, long timeoutMs) {
+        DeferredResult<ResponseEntity<List<DeviceCommand>>> result =
+                new DeferredResult<>(timeoutMs, ResponseEntity.noContent().build());
+        Channel channel = channel(deviceId);
+
+        DeferredResult<ResponseEntity<List<DeviceCommand>>> replaced = null;
+        boolean deliverNow;
+        synchronized (channel) {
+            deliverNow = !channel.pending.isEmpty();
+            if (!deliverNow) {
+                replaced = channel.waiter;
+                channel.waiter = result;
+            }
+        }
+        if (replaced != null) {
+            replaced.setResult(ResponseEntity.noContent().build());
+        }
+        if (deliverNow) {
+            deliverTo(result, channel);
+        } else {
+            result.onCompletion(() -> {
+                synchronized (channel) {
+                    if (channel.waiter == result) {
+                        channel.waiter = null;
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    // Hands over the device's pending commands without waiting; empty when there are none
+    public List<DeviceCommand> takePending(String deviceId) {
+        Channel channel = channels.get(deviceId);
+        return channel == null ? List.of() : take(channel);
+    }
+
+    public DeviceCommand acknowledge(Long commandId) {
+        Outstanding entry = outstanding.remove(commandId);
+        DeviceCommand command = entry != null ? entry.command
+                : deviceCommandRepository.findById(commandId).orElse(null);
+        if (command == null || command.getAcknowledgedAt() != null) {
+            return command;
+        }
+
+        command.setAcknowledgedAt(LocalDateTime.now());
+        if (command.getDeliveredAt() == null) {
+            command.setDeliveredAt(command.getAcknowledgedAt());
+        }
+        if (entry != null) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - entry.issuedNanos);
+            ackMicrosTotal.add(micros);
+            ackMicrosMax.accumulateAndGet(micros, Math::max);
+        }
+        acknowledged.increment();
+        persist(command);
+        return command;
+    }
+
+    public Map<String, Object> getStats() {
+        long deliveredCount = delivered.sum();
+        long acknowledgedCount = acknowledged.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("issued", issued.sum());
+        stats.put("delivered", deliveredCount);
+        stats.put("acknowledged", acknowledgedCount);
+        stats.put("outstanding", outstanding.size());
+        stats.put("avgDeliveryMillis", deliveredCount == 0 ? 0.0 : deliveryMicrosTotal.sum() / 1000.0 / deliveredCount);
+        stats.put("maxDeliveryMillis", deliveryMicrosMax.get() / 1000.0);
+        stats.put("avgAckMillis", acknowledgedCount == 0 ? 0.0 : ackMicrosTotal.sum() / 1000.0 / acknowledgedCount);
+        stats.put("maxAckMillis", ackMicrosMax.get() / 1000.0);
+        return stats;
+    }
+
+    // One writer thread keeps the issue and acknowledge writes of a command in order
+    private void persist(DeviceCommand command) {
+        writer.execute(() -> {
+            try {
+                deviceCommandRepository.save(command);
+                command.markNotNew();
+            } catch (DataIntegrityViolationException e) {
+                System.err.println("Device command id " + command.getId() + " is already taken, command not stored: "
+                        + e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("Failed to store device command " + command.getId() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private void deliverTo(DeferredResult<ResponseEntity<List<DeviceCommand>>> waiter, Channel channel) {
+        List<DeviceCommand> commands = take(channel);
+        if (commands.isEmpty()) {
+            waiter.setResult(ResponseEntity.noContent().build());
+        } else {
+            waiter.setResult(ResponseEntity.ok(commands));
+        }
+    }
+
+    private List<DeviceCommand> take(Channel channel) {
+        List<DeviceCommand> commands;
+        synchronized (channel) {
+            if (channel.pending.isEmpty()) {
+                return List.of();
+            }
+            commands = new ArrayList<>(channel.pending);
+            channel.pending.clear();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (DeviceCommand command : commands) {
+            command.setDeliveredAt(now);
+            Outstanding entry = outstanding.get(command.getId());
+            if (entry != null) {
+                long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - entry.issuedNanos);
+                deliveryMicrosTotal.add(micros);
+                deliveryMicrosMax.accumulateAndGet(micros, Math::max);
+            }
+            delivered.increment();
+        }
+        return commands;
+    }
+
+    private Channel channel(String deviceId) {
+        return channels.computeIfAbsent(deviceId, id -> new Channel());
+    }
+
+    private static class Channel {
+        private final Deque<DeviceCommand> pending = new ArrayDeque<>();
+        private DeferredResult<ResponseEntity<List<DeviceCommand>>> waiter;
+    }
+
+    private record Outstanding(DeviceCommand command, long issuedNanos) {
+    }
+}
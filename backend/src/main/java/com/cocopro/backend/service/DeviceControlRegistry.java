@@ -0,0 +1,139 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.DeviceControl;
+import com.cocopro.backend.repository.DeviceControlRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Control state (collecting, Motor/IR) per dryer. Reads are a single lock-free map lookup;
+ * transitions swap an immutable State with compare-and-set and never wait on the database,
+ * so a slow or unavailable MySQL cannot fail or delay a stop. The latest state of each dryer
+ * is written behind to device_controls by a background thread and retried until it is
+ * stored; versions make the writes order-independent, so each dryer keeps its own state
+ * across restarts.
+ */
+@Service
+public class DeviceControlRegistry {
+
+    private static final State INITIAL = new State(false, true, 0);
+
+    private final DeviceControlRepository deviceControlRepository;
+    private final long retryIntervalMs;
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+    private final Map<String, State> unsaved = new ConcurrentHashMap<>();
+    private ScheduledExecutorService writer;
+
+    public DeviceControlRegistry(DeviceControlRepository deviceControlRepository,
+                                 @Value("${device.control.retry-interval-ms:5000}") long retryIntervalMs) {
+        this.deviceControlRepository = deviceControlRepository;
+        this.retryIntervalMs = retryIntervalMs;
+    }
+
+    @PostConstruct
+    public void load() {
+        for (DeviceControl control : deviceControlRepository.findAll()) {
+            states.put(control.getDeviceId(),
+                    new State(control.isCollecting(), control.isMotorIROn(), control.getVersion()));
+        }
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "device-control");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::flush, retryIntervalMs, retryIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    public State get(String deviceId) {
+        return states.getOrDefault(deviceId, INITIAL);
+    }
+
+    // Starting a collection also re-arms Motor/IR after an emergency stop
+    public State start(String deviceId) {
+        return transition(deviceId, state -> new State(true, true, state.version() + 1));
+    }
+
+    public State stop(String deviceId) {
+        return transition(deviceId, state -> new State(false, state.motorIROn(), state.version() + 1));
+    }
+
+    public State emergencyStop(String deviceId) {
+        return transition(deviceId, state -> new State(state.collecting(), false, state.version() + 1));
+    }
+
+    private State transition(String deviceId, UnaryOperator<State> change) {
+        State next;
+        while (true) {
+            State current = states.get(deviceId);
+            if (current == null) {
+                next = change.apply(INITIAL);
+                if (states.putIfAbsent(deviceId, next) == null) {
+                    break;
+                }
+            } else {
+                next = change.apply(current);
+                if (states.replace(deviceId, current, next)) {
+                    break;
+                }
+            }
+        }
+        unsaved.merge(deviceId, next, DeviceControlRegistry::newer);
+        writer.execute(this::flush);
+        return next;
+    }
+
+    synchronized void flush() {
+        for (String deviceId : unsaved.keySet()) {
+            State state = unsaved.remove(deviceId);
+            if (state == null) {
+                continue;
+            }
+            try {
+                persist(deviceId, state);
+            } catch (RuntimeException e) {
+                // Kept for the next flush unless a newer state is already waiting
+                unsaved.merge(deviceId, state, DeviceControlRegistry::newer);
+                System.err.println("Failed to store control state of " + deviceId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void persist(String deviceId, State state) {
+        LocalDateTime now = LocalDateTime.now();
+        if (deviceControlRepository.updateIfNewer(deviceId, state.collecting(), state.motorIROn(), state.version(), now) > 0) {
+            return;
+        }
+        try {
+            // A real INSERT (DeviceControl is Persistable): fails on the key when the row exists instead of overwriting it
+            deviceControlRepository.saveAndFlush(new DeviceControl(deviceId, state.collecting(), state.motorIROn(), state.version()));
+        } catch (DataIntegrityViolationException e) {
+            // The row exists, possibly with an older version than this one
+            deviceControlRepository.updateIfNewer(deviceId, state.collecting(), state.motorIROn(), state.version(), now);
+        }
+    }
+
+    private static State newer(State a, State b) {
+        return b.version() > a.version() ? b : a;
+    }
+
+    public record State(boolean collecting, boolean motorIROn, long version) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.cocopro.backend.service;
+
+import java.time.LocalDateTime;
+
+// Published when a device starts talking to the backend again or misses its expected interval
+public record DeviceLivenessEvent(String stream, String deviceId, Status status, LocalDateTime lastSeen,
+                                  LocalDateTime at) {
+
+    public enum Status {
+        ONLINE,
+        OFFLINE
+    }
+}
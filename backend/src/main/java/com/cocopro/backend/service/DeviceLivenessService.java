@@ -0,0 +1,166 @@
+package com.cocopro.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks which devices are still talking to the backend. Every device request stamps the
+ * device's last-seen time (a single volatile write); one timer per device sits in a timing
+ * wheel and, when it fires, either re-arms from the latest stamp or declares the device
+ * offline. Coming back online and dropping off are published as DeviceLivenessEvents and
+ * kept in a short in-memory log.
+ */
+@Service
+public class DeviceLivenessService {
+
+    private static final int MAX_RECENT_EVENTS = 200;
+
+    private final long timeoutMillis;
+    private final long tickMillis;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<String, DeviceState> devices = new ConcurrentHashMap<>();
+    private final Deque<DeviceLivenessEvent> recentEvents = new ArrayDeque<>();
+    private TimingWheel<DeviceState> wheel;
+    private ScheduledExecutorService ticker;
+
+    public DeviceLivenessService(ApplicationEventPublisher eventPublisher,
+                                 @Value("${sensor.liveness.timeout-seconds:30}") long timeoutSeconds,
+                                 @Value("${sensor.liveness.tick-ms:1000}") long tickMillis) {
+        this.eventPublisher = eventPublisher;
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        this.tickMillis = tickMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        wheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "device-liveness");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    // Called for every device request; only a device coming (back) online takes the wheel lock
+    public void touch(String stream, String deviceId) {
+        DeviceState state = devices.computeIfAbsent(stream + ":" + deviceId, key -> new DeviceState(stream, deviceId));
+        long now = System.currentTimeMillis();
+        state.lastSeen = now;
+        if (!state.online) {
+            boolean cameOnline = false;
+            synchronized (wheel) {
+                if (!state.online) {
+                    state.online = true;
+                    wheel.schedule(state.timer, now + timeoutMillis);
+                    cameOnline = true;
+                }
+            }
+            if (cameOnline) {
+                publish(state, DeviceLivenessEvent.Status.ONLINE, now);
+            }
+        }
+    }
+
+    public List<Map<String, Object>> getDevices() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        devices.values().stream()
+                .sorted(Comparator.comparing((DeviceState state) -> state.stream).thenComparing(state -> state.deviceId))
+                .forEach(state -> {
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("stream", state.stream);
+                    entry.put("deviceId", state.deviceId);
+                    entry.put("online", state.online);
+                    entry.put("lastSeen", SensorSeries.fromEpochMillis(state.lastSeen));
+                    result.add(entry);
+                });
+        return result;
+    }
+
+    public List<DeviceLivenessEvent> getRecentEvents() {
+        synchronized (recentEvents) {
+            return new ArrayList<>(recentEvents);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long online = devices.values().stream().filter(state -> state.online).count();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("devices", devices.size());
+        stats.put("online", online);
+        stats.put("offline", devices.size() - online);
+        stats.put("timeoutSeconds", TimeUnit.MILLISECONDS.toSeconds(timeoutMillis));
+        return stats;
+    }
+
+    void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            List<DeviceState> wentOffline = new ArrayList<>();
+            synchronized (wheel) {
+                for (DeviceState state : wheel.advance(now)) {
+                    long deadline = state.lastSeen + timeoutMillis;
+                    if (deadline > now) {
+                        wheel.schedule(state.timer, deadline);
+                    } else {
+                        state.online = false;
+                        wentOffline.add(state);
+                    }
+                }
+            }
+            for (DeviceState state : wentOffline) {
+                publish(state, DeviceLivenessEvent.Status.OFFLINE, state.lastSeen);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Device liveness tick failed: " + e.getMessage());
+        }
+    }
+
+    private void publish(DeviceState state, DeviceLivenessEvent.Status status, long lastSeen) {
+        DeviceLivenessEvent event = new DeviceLivenessEvent(state.stream, state.deviceId, status,
+                SensorSeries.fromEpochMillis(lastSeen), LocalDateTime.now());
+        synchronized (recentEvents) {
+            if (recentEvents.size() == MAX_RECENT_EVENTS) {
+                recentEvents.removeFirst();
+            }
+            recentEvents.addLast(event);
+        }
+        System.out.println("Device " + state.stream + ":" + state.deviceId + " is " + status
+                + " (last seen " + event.lastSeen() + ")");
+        eventPublisher.publishEvent(event);
+    }
+
+    private static final class DeviceState {
+        final String stream;
+        final String deviceId;
+        final TimingWheel.Timer<DeviceState> timer = new TimingWheel.Timer<>(this);
+        volatile long lastSeen;
+        volatile boolean online;
+
+        DeviceState(String stream, String deviceId) {
+            this.stream = stream;
+            this.deviceId = deviceId;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.cocopro.backend.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drops resent device posts before they reach any store. Firmware numbers each post with a
+ * monotonic seq (and a random boot id per power-up); a post whose seq was already seen within
+ * the device's sliding window is a retry of one the server already accepted. Posts without
+ * a seq are always accepted, so older firmware keeps working unchanged.
+ *
+ * Each boot of a device gets its own window, and the most recently used few are kept. Retries
+ * from before a reboot, or two boards posting under one device id, then interleave without
+ * one boot's posts wiping the other's marks.
+ */
+@Service
+public class DeviceSequenceService {
+
+    public static final String SENSOR = "sensor";
+    public static final String COLOR = "color";
+
+    private static final int BOOTS_PER_DEVICE = 4;
+
+    private final Map<String, DeviceWindows> windows = new ConcurrentHashMap<>();
+    private final LongAdder duplicates = new LongAdder();
+
+    // True when the post is new (and now marked), false for a duplicate
+    public boolean claim(String stream, String deviceId, Long boot, Long seq) {
+        if (seq == null) {
+            return true;
+        }
+        long bootId = boot == null ? 0 : boot;
+        SequenceWindow window = windows.computeIfAbsent(stream + ":" + deviceId, key -> new DeviceWindows()).get(bootId);
+        if (window.mark(bootId, seq)) {
+            return true;
+        }
+        duplicates.increment();
+        return false;
+    }
+
+    // Undoes a claim when the post could not be stored, so the device's retry is not mistaken for a duplicate
+    public void release(String stream, String deviceId, Long boot, Long seq) {
+        if (seq == null) {
+            return;
+        }
+        DeviceWindows device = windows.get(stream + ":" + deviceId);
+        if (device != null) {
+            long bootId = boot == null ? 0 : boot;
+            device.get(bootId).unmark(bootId, seq);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("devices", windows.size());
+        stats.put("duplicates", duplicates.sum());
+        return stats;
+    }
+
+    // Windows of one device by boot id, least recently used first
+    private static final class DeviceWindows {
+        private final Map<Long, SequenceWindow> byBoot = new LinkedHashMap<>(8, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, SequenceWindow> eldest) {
+                return size() > BOOTS_PER_DEVICE;
+            }
+        };
+
+        synchronized SequenceWindow get(long boot) {
+            return byBoot.computeIfAbsent(boot, key -> new SequenceWindow());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.ColorData;
+import com.cocopro.backend.model.ColorTransition;
+import com.cocopro.backend.model.SensorData;
+import com.cocopro.backend.repository.ColorDataRepository;
+import com.cocopro.backend.repository.ColorTransitionRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest reading per device, kept as the JSON bytes /latest returns. Ingest serializes each
+ * new reading once and swaps it in (an older reading arriving late never replaces a newer
+ * one), so polling /latest is a map lookup and a byte copy: no query and no serialization
+ * per request. A device not seen since startup is loaded once on its first poll; for color
+ * sensors that is the sample of the latest state change, since raw color_data rows are only
+ * written when color.state.store-samples is on.
+ */
+@Service
+public class LatestSnapshotService {
+
+    private final ObjectMapper objectMapper;
+    private final SensorHistoryService historyService;
+    private final ColorDataRepository colorDataRepository;
+    private final ColorTransitionRepository colorTransitionRepository;
+    private final boolean storeColorSamples;
+    private final Map<String, Snapshot> sensorSnapshots = new ConcurrentHashMap<>();
+    private final Map<String, Snapshot> colorSnapshots = new ConcurrentHashMap<>();
+
+    public LatestSnapshotService(ObjectMapper objectMapper,
+                                 SensorHistoryService historyService,
+                                 ColorDataRepository colorDataRepository,
+                                 ColorTransitionRepository colorTransitionRepository,
+                                 @Value("${color.state.store-samples:false}") boolean storeColorSamples) {
+        this.objectMapper = objectMapper;
+        this.historyService = historyService;
+        this.colorDataRepository = colorDataRepository;
+        this.colorTransitionRepository = colorTransitionRepository;
+        this.storeColorSamples = storeColorSamples;
+    }
+
+    // Null when the device has never reported
+    public byte[] sensor(String deviceId) {
+        Snapshot snapshot = sensorSnapshots.get(deviceId);
+        if (snapshot == null) {
+            SensorData latest = historyService.latest(deviceId);
+            if (latest == null) {
+                return null;
+            }
+            snapshot = offer(sensorSnapshots, deviceId, latest.getTimestamp(), latest);
+        }
+        return snapshot.json();
+    }
+
+    public byte[] color(String deviceId) {
+        Snapshot snapshot = colorSnapshots.get(deviceId);
+        if (snapshot == null) {
+            ColorData latest = latestStoredColor(deviceId);
+            if (latest == null) {
+                return null;
+            }
+            snapshot = offer(colorSnapshots, deviceId, latest.getTimestamp(), latest);
+        }
+        return snapshot.json();
+    }
+
+    private ColorData latestStoredColor(String deviceId) {
+        ColorData latest = null;
+        ColorTransition transition = colorTransitionRepository.findTopByDeviceIdOrderByTimestampDesc(deviceId);
+        if (transition != null) {
+            latest = new ColorData();
+            latest.setDeviceId(deviceId);
+            latest.setTimestamp(transition.getTimestamp());
+            latest.setRed(transition.getRed());
+            latest.setGreen(transition.getGreen());
+            latest.setBlue(transition.getBlue());
+            latest.setColorClass(transition.getToClass());
+            latest.setBlackDetected(ColorClassifier.BLACK.equals(transition.getToClass()));
+        }
+        if (storeColorSamples) {
+            ColorData sample = colorDataRepository.findTopByDeviceIdOrderByTimestampDesc(deviceId);
+            if (sample != null && (latest == null || sample.getTimestamp().isAfter(latest.getTimestamp()))) {
+                latest = sample;
+            }
+        }
+        return latest;
+    }
+
+    // Called after the reading reached the history window; serializes the window's clean copy
+    public void recordSensor(String deviceId) {
+        SensorData latest = historyService.latest(deviceId);
+        if (latest != null) {
+            offer(sensorSnapshots, deviceId, latest.getTimestamp(), latest);
+        }
+    }
+
+    public void recordColor(ColorData saved) {
+        // Device-side post numbering is not part of the stored row, so it is not part of /latest either
+        saved.setSeq(null);
+        saved.setBoot(null);
+        offer(colorSnapshots, saved.getDeviceId(), saved.getTimestamp(), saved);
+    }
+
+    private Snapshot offer(Map<String, Snapshot> snapshots, String deviceId, LocalDateTime timestamp,
+                           Object value) {
+        Snapshot candidate = new Snapshot(SensorSeries.toEpochMillis(timestamp), serialize(value));
+        return snapshots.merge(deviceId, candidate,
+                (current, offered) -> offered.timestamp() >= current.timestamp() ? offered : current);
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize latest snapshot", e);
+        }
+    }
+
+    private record Snapshot(long timestamp, byte[] json) {
+    }
+}
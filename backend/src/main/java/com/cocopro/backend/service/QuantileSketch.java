@@ -0,0 +1,159 @@
+package com.cocopro.backend.service;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Mergeable quantile sketch for one sensor channel: an HDR-style histogram with fixed
+ * buckets at the sensor's own resolution, so quantiles are exact to the precision the
+ * device reports, merging is adding bucket counts, and any number of hourly sketches
+ * combine without error. Serialized sparsely (varint gap and count per occupied bucket),
+ * which keeps an hour of readings at a few hundred bytes.
+ */
+public class QuantileSketch {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    public enum Scale {
+        TEMPERATURE(-40, 0.1, 1651),
+        MOISTURE(0, 1, 101),
+        // One bucket per raw 8-bit value of a color sensor channel
+        COLOR_CHANNEL(0, 1, 256);
+
+        private final double min;
+        private final double resolution;
+        private final int buckets;
+
+        Scale(double min, double resolution, int buckets) {
+            this.min = min;
+            this.resolution = resolution;
+            this.buckets = buckets;
+        }
+
+        int bucketOf(double value) {
+            long index = Math.round((value - min) / resolution);
+            return (int) Math.max(0, Math.min(buckets - 1, index));
+        }
+
+        double valueOf(int bucket) {
+            // Rounded so 0.1-steps come back as 27.3 rather than 27.299999999999997
+            return Math.round((min + bucket * resolution) * 1000.0) / 1000.0;
+        }
+    }
+
+    private final Scale scale;
+    private final long[] counts;
+    private long count;
+
+    public QuantileSketch(Scale scale) {
+        this.scale = scale;
+        this.counts = new long[scale.buckets];
+    }
+
+    public static QuantileSketch fromBytes(Scale scale, byte[] data) {
+        QuantileSketch sketch = new QuantileSketch(scale);
+        sketch.merge(data);
+        return sketch;
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        counts[scale.bucketOf(value)]++;
+        count++;
+    }
+
+    public void merge(QuantileSketch other) {
+        if (other.scale != scale) {
+            throw new IllegalArgumentException("Cannot merge " + other.scale + " sketch into " + scale);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+    }
+
+    // Folds a serialized sketch in directly, without building an intermediate object
+    public void merge(byte[] data) {
+        if (data == null || data.length == 0) {
+            return;
+        }
+        if (data[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unknown sketch format " + data[0]);
+        }
+        int[] position = {1};
+        int bucket = -1;
+        while (position[0] < data.length) {
+            bucket += (int) readVarint(data, position) + 1;
+            long bucketCount = readVarint(data, position);
+            counts[bucket] += bucketCount;
+            count += bucketCount;
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    // Bucket counts folded into the given number of equal-width bins; the last bin may be narrower
+    public long[] histogram(int bins) {
+        int width = (counts.length + bins - 1) / bins;
+        long[] histogram = new long[(counts.length + width - 1) / width];
+        for (int i = 0; i < counts.length; i++) {
+            histogram[i / width] += counts[i];
+        }
+        return histogram;
+    }
+
+    // Smallest recorded value with at least q of the readings at or below it; null when empty
+    public Double quantile(double q) {
+        if (count == 0) {
+            return null;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(1, Math.max(0, q)) * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return scale.valueOf(i);
+            }
+        }
+        return scale.valueOf(counts.length - 1);
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(FORMAT_VERSION);
+        int previous = -1;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            writeVarint(out, i - previous - 1);
+            writeVarint(out, counts[i]);
+            previous = i;
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] data, int[] position) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.cocopro.backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One device's compressed history: a small sorted buffer of raw readings that is sealed into
+ * an immutable CompressedSensorBlock once full. Sealed blocks are published as an immutable
+ * list, so range scans decode them without holding the append lock. Blocks whose newest
+ * reading falls outside the retention period are dropped when a new block is sealed.
+ */
+class SensorArchive {
+
+    private final String deviceId;
+    private final long retentionMillis;
+    private final long[] timestamps;
+    private final float[] temperature;
+    private final float[] humidity;
+    private final int[] moisture;
+    private final int[] rpm;
+
+    private int openCount;
+    private long newestTimestamp = Long.MIN_VALUE;
+    private volatile List<CompressedSensorBlock> sealed = List.of();
+
+    SensorArchive(String deviceId, int blockSize, long retentionMillis) {
+        this.deviceId = deviceId;
+        this.retentionMillis = retentionMillis;
+        this.timestamps = new long[blockSize];
+        this.temperature = new float[blockSize];
+        this.humidity = new float[blockSize];
+        this.moisture = new int[blockSize];
+        this.rpm = new int[blockSize];
+    }
+
+    synchronized void append(long timestamp, float temp, float hum, int moist, int revs) {
+        if (newestTimestamp != Long.MIN_VALUE && timestamp < newestTimestamp - retentionMillis) {
+            return;
+        }
+        newestTimestamp = Math.max(newestTimestamp, timestamp);
+
+        // Late readings are sorted into the open buffer; blocks may then overlap slightly in time
+        int position = openCount;
+        while (position > 0 && timestamps[position - 1] > timestamp) {
+            timestamps[position] = timestamps[position - 1];
+            temperature[position] = temperature[position - 1];
+            humidity[position] = humidity[position - 1];
+            moisture[position] = moisture[position - 1];
+            rpm[position] = rpm[position - 1];
+            position--;
+        }
+        timestamps[position] = timestamp;
+        temperature[position] = temp;
+        humidity[position] = hum;
+        moisture[position] = moist;
+        rpm[position] = revs;
+        openCount++;
+
+        if (openCount == timestamps.length) {
+            seal();
+        }
+    }
+
+    // Ordered by timestamp even where late readings made blocks overlap; the builder merges the sources
+    SensorSeries range(long fromMillis, long toMillis) {
+        SensorSeriesBuilder builder = new SensorSeriesBuilder(timestamps.length);
+        List<CompressedSensorBlock> blocks;
+        synchronized (this) {
+            // Taken together with the open buffer, so a seal in between cannot move readings out of both
+            blocks = sealed;
+            for (int i = 0; i < openCount && timestamps[i] <= toMillis; i++) {
+                if (timestamps[i] >= fromMillis) {
+                    builder.add(timestamps[i], temperature[i], humidity[i], moisture[i], rpm[i]);
+                }
+            }
+        }
+        // Decoding needs no lock, the published blocks are immutable
+        for (CompressedSensorBlock block : blocks) {
+            if (block.overlaps(fromMillis, toMillis)) {
+                block.decode(fromMillis, toMillis, builder);
+            }
+        }
+        return builder.build(deviceId);
+    }
+
+    List<CompressedSensorBlock> blocks() {
+        return sealed;
+    }
+
+    synchronized int openCount() {
+        return openCount;
+    }
+
+    private void seal() {
+        CompressedSensorBlock block = CompressedSensorBlock.encode(timestamps, temperature, humidity, moisture, rpm, openCount);
+        long cutoff = newestTimestamp - retentionMillis;
+        List<CompressedSensorBlock> next = new ArrayList<>(sealed.size() + 1);
+        for (CompressedSensorBlock existing : sealed) {
+            if (existing.getMaxTimestamp() >= cutoff) {
+                next.add(existing);
+            }
+        }
+        next.add(block);
+        sealed = List.copyOf(next);
+        openCount = 0;
+    }
+}
@@ -0,0 +1,111 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.SensorData;
+import com.cocopro.backend.repository.SensorDataRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps weeks of full-resolution history in memory as compressed per-device blocks
+ * (delta-of-delta timestamps, XOR-encoded values), at a few bytes per reading instead of
+ * a SensorData entity each. Serves chart ranges that reach past the rolling window
+ * without querying sensor_data.
+ */
+@Service
+public class SensorArchiveService {
+
+    private static final int WARM_PAGE_SIZE = 5000;
+
+    private final SensorDataRepository sensorDataRepository;
+    private final SensorDeadbandFilter deadbandFilter;
+    private final int retentionDays;
+    private final int blockSize;
+    private final Map<String, SensorArchive> archives = new ConcurrentHashMap<>();
+
+    public SensorArchiveService(SensorDataRepository sensorDataRepository,
+                                SensorDeadbandFilter deadbandFilter,
+                                @Value("${sensor.archive.retention-days:30}") int retentionDays,
+                                @Value("${sensor.archive.block-size:512}") int blockSize) {
+        this.sensorDataRepository = sensorDataRepository;
+        this.deadbandFilter = deadbandFilter;
+        this.retentionDays = retentionDays;
+        this.blockSize = blockSize;
+    }
+
+    // Pages through the retention period by id so startup never holds more than one page of entities
+    @PostConstruct
+    public void warm() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        long afterId = 0;
+        long loaded = 0;
+        Map<String, SensorData> previous = new HashMap<>();
+        List<SensorData> page;
+        do {
+            page = sensorDataRepository.findByTimestampAfterAndIdGreaterThanOrderByIdAsc(
+                    cutoff, afterId, Limit.of(WARM_PAGE_SIZE));
+            for (SensorData reading : page) {
+                // sensor_data only keeps changes, so restore the step before each one
+                SensorData hold = deadbandFilter.lastSuppressed(previous.put(reading.getDeviceId(), reading), reading);
+                if (hold != null) {
+                    record(hold);
+                }
+                record(reading);
+                afterId = reading.getId();
+            }
+            loaded += page.size();
+        } while (page.size() == WARM_PAGE_SIZE);
+        System.out.println("Sensor archive warmed with " + loaded + " readings");
+    }
+
+    public void record(SensorData reading) {
+        String deviceId = reading.getDeviceId() == null ? SensorData.DEFAULT_DEVICE_ID : reading.getDeviceId();
+        archives.computeIfAbsent(deviceId, id -> new SensorArchive(id, blockSize, TimeUnit.DAYS.toMillis(retentionDays)))
+                .append(SensorSeries.toEpochMillis(reading.getTimestamp()),
+                        reading.getTemperature(),
+                        reading.getHumidity(),
+                        reading.getMoisture(),
+                        reading.getRpm());
+    }
+
+    public SensorSeries range(String deviceId, LocalDateTime from, LocalDateTime to) {
+        SensorArchive archive = archives.get(deviceId);
+        if (archive == null) {
+            return SensorSeries.empty(deviceId);
+        }
+        return archive.range(SensorSeries.toEpochMillis(from), SensorSeries.toEpochMillis(to));
+    }
+
+    public Map<String, Object> getStats() {
+        long readings = 0;
+        long blocks = 0;
+        long compressedReadings = 0;
+        long compressedBytes = 0;
+        for (SensorArchive archive : archives.values()) {
+            for (CompressedSensorBlock block : archive.blocks()) {
+                blocks++;
+                compressedReadings += block.size();
+                compressedBytes += block.sizeInBytes();
+            }
+            readings += archive.openCount();
+        }
+        readings += compressedReadings;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("devices", archives.size());
+        stats.put("readings", readings);
+        stats.put("blocks", blocks);
+        stats.put("compressedBytes", compressedBytes);
+        stats.put("bytesPerReading", compressedReadings == 0 ? 0.0 : (double) compressedBytes / compressedReadings);
+        return stats;
+    }
+}
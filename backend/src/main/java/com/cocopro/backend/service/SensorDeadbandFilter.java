@@ -0,0 +1,126 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.SensorData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which readings are worth a sensor_data row. A reading is stored when any value moved
+ * past its deadband since the last stored reading of that device, or when the heartbeat
+ * interval has passed; everything else is a repeat of the previous row. sensor_data therefore
+ * holds a step series: each row's values hold until the next row of the same device.
+ * The in-memory history, archive, rollups and stream still see every reading.
+ * The default deadbands are below the DHT11 and moisture sensor resolution, so only exact
+ * repeats are dropped; widen them to trade precision for fewer rows.
+ */
+@Service
+public class SensorDeadbandFilter {
+
+    // Float readings like 30.1 - 30.0 land just under 0.1
+    private static final float EPSILON = 1e-4f;
+
+    private final boolean enabled;
+    private final float temperatureDeadband;
+    private final float humidityDeadband;
+    private final int moistureDeadband;
+    private final int rpmDeadband;
+    private final long heartbeatMillis;
+    private final long sampleMillis;
+    private final Map<String, Stored> lastStored = new ConcurrentHashMap<>();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+
+    public SensorDeadbandFilter(@Value("${sensor.deadband.enabled:true}") boolean enabled,
+                                @Value("${sensor.deadband.temperature:0.1}") float temperatureDeadband,
+                                @Value("${sensor.deadband.humidity:0.1}") float humidityDeadband,
+                                @Value("${sensor.deadband.moisture:1}") int moistureDeadband,
+                                @Value("${sensor.deadband.rpm:1}") int rpmDeadband,
+                                @Value("${sensor.deadband.heartbeat-seconds:300}") long heartbeatSeconds,
+                                @Value("${sensor.deadband.sample-seconds:5}") long sampleSeconds) {
+        this.enabled = enabled;
+        this.temperatureDeadband = temperatureDeadband;
+        this.humidityDeadband = humidityDeadband;
+        this.moistureDeadband = moistureDeadband;
+        this.rpmDeadband = rpmDeadband;
+        this.heartbeatMillis = TimeUnit.SECONDS.toMillis(heartbeatSeconds);
+        this.sampleMillis = TimeUnit.SECONDS.toMillis(sampleSeconds);
+    }
+
+    // Only decides; call stored() once the row was actually queued so a full queue does not lose a change
+    public boolean isSignificant(SensorData reading) {
+        if (!enabled) {
+            return true;
+        }
+        Stored last = lastStored.get(reading.getDeviceId());
+        long timestamp = SensorSeries.toEpochMillis(reading.getTimestamp());
+        boolean significant = last == null
+                // Late readings from a buffered batch are kept rather than judged against newer rows
+                || timestamp < last.timestamp
+                || timestamp - last.timestamp >= heartbeatMillis
+                || Math.abs(reading.getTemperature() - last.temperature) >= temperatureDeadband - EPSILON
+                || Math.abs(reading.getHumidity() - last.humidity) >= humidityDeadband - EPSILON
+                || Math.abs(reading.getMoisture() - last.moisture) >= moistureDeadband
+                || Math.abs(reading.getRpm() - last.rpm) >= rpmDeadband;
+        if (!significant) {
+            suppressed.increment();
+        }
+        return significant;
+    }
+
+    public void stored(SensorData reading) {
+        stored.increment();
+        if (!enabled) {
+            return;
+        }
+        Stored next = new Stored(SensorSeries.toEpochMillis(reading.getTimestamp()),
+                reading.getTemperature(), reading.getHumidity(), reading.getMoisture(), reading.getRpm());
+        lastStored.merge(reading.getDeviceId(), next,
+                (current, candidate) -> candidate.timestamp >= current.timestamp ? candidate : current);
+    }
+
+    /**
+     * Rebuilds the step between two stored rows of a device: when samples were suppressed in
+     * between, returns the last of them (the previous values one sample before the next row),
+     * otherwise null. Lets charts loaded from sensor_data draw a hold and a step, not a ramp.
+     */
+    public SensorData lastSuppressed(SensorData previous, SensorData next) {
+        if (previous == null || !enabled) {
+            return null;
+        }
+        // A gap longer than the heartbeat means the device was offline, not steady
+        if (previous.getTimestamp().plus(heartbeatMillis + sampleMillis, ChronoUnit.MILLIS).isBefore(next.getTimestamp())) {
+            return null;
+        }
+        LocalDateTime holdUntil = next.getTimestamp().minus(sampleMillis, ChronoUnit.MILLIS);
+        if (!holdUntil.isAfter(previous.getTimestamp())) {
+            return null;
+        }
+        SensorData hold = new SensorData();
+        hold.setDeviceId(previous.getDeviceId());
+        hold.setTimestamp(holdUntil);
+        hold.setTemperature(previous.getTemperature());
+        hold.setHumidity(previous.getHumidity());
+        hold.setMoisture(previous.getMoisture());
+        hold.setRpm(previous.getRpm());
+        return hold;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("stored", stored.sum());
+        stats.put("suppressed", suppressed.sum());
+        return stats;
+    }
+
+    private record Stored(long timestamp, float temperature, float humidity, int moisture, int rpm) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.cocopro.backend.service;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling for chart responses. The series is split into
+ * equal buckets and each bucket keeps the reading forming the largest triangle with the point
+ * kept before it and the average of the next bucket, so peaks and dips survive while the
+ * response stays at a fixed size however long the window or fast the sampling.
+ */
+public final class SensorDownsampler {
+
+    private SensorDownsampler() {
+    }
+
+    public static SensorSeries moisture(SensorSeries series, int points) {
+        if (points < 3 || series.size() <= points) {
+            return series;
+        }
+        return series.select(lttb(series, series::getMoisture, points));
+    }
+
+    // Temperature and humidity each get half the budget; the chart gets the union of both picks
+    public static SensorSeries environment(SensorSeries series, int points) {
+        if (points < 6 || series.size() <= points) {
+            return series;
+        }
+        int[] byTemperature = lttb(series, series::getTemperature, points / 2);
+        int[] byHumidity = lttb(series, series::getHumidity, points / 2);
+        return series.select(union(byTemperature, byHumidity));
+    }
+
+    // Indices of the kept readings, ascending; always keeps the first and last reading
+    static int[] lttb(SensorSeries series, IntToDoubleFunction value, int threshold) {
+        int size = series.size();
+        if (threshold >= size || threshold < 3) {
+            int[] all = new int[size];
+            for (int i = 0; i < size; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        long origin = series.getTimestamp(0);
+        int[] sampled = new int[threshold];
+        double every = (double) (size - 2) / (threshold - 2);
+        int kept = 0;
+        int a = 0;
+        sampled[kept++] = a;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Average of the following bucket (the last point for the final bucket)
+            int nextStart = (int) ((bucket + 1) * every) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * every) + 1, size);
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += series.getTimestamp(i) - origin;
+                avgY += value.applyAsDouble(i);
+            }
+            int span = nextEnd - nextStart;
+            avgX /= span;
+            avgY /= span;
+
+            double ax = series.getTimestamp(a) - origin;
+            double ay = value.applyAsDouble(a);
+            int rangeStart = (int) (bucket * every) + 1;
+            int rangeEnd = (int) ((bucket + 1) * every) + 1;
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int i = rangeStart; i < rangeEnd; i++) {
+                double area = Math.abs((ax - avgX) * (value.applyAsDouble(i) - ay)
+                        - (ax - (series.getTimestamp(i) - origin)) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = i;
+                }
+            }
+            sampled[kept++] = next;
+            a = next;
+        }
+        sampled[kept] = size - 1;
+        return sampled;
+    }
+
+    private static int[] union(int[] left, int[] right) {
+        int[] merged = new int[left.length + right.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < left.length || j < right.length) {
+            int next;
+            if (j >= right.length || (i < left.length && left[i] <= right[j])) {
+                next = left[i++];
+            } else {
+                next = right[j++];
+            }
+            if (count == 0 || merged[count - 1] != next) {
+                merged[count++] = next;
+            }
+        }
+        return Arrays.copyOf(merged, count);
+    }
+}
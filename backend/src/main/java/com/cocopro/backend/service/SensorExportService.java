@@ -0,0 +1,58 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.SensorData;
+import com.cocopro.backend.repository.SensorDataRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the full sensor_data table as one JSON array, row by row, straight from a database
+ * cursor to the response. Each entity is detached once written, so memory stays flat no matter
+ * how many readings a season has accumulated.
+ */
+@Service
+public class SensorExportService {
+
+    private static final int FLUSH_EVERY = 1000;
+
+    private final SensorDataRepository sensorDataRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public SensorExportService(SensorDataRepository sensorDataRepository,
+                               EntityManager entityManager,
+                               ObjectMapper objectMapper) {
+        this.sensorDataRepository = sensorDataRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    // The cursor is only open inside a transaction, so the whole write happens within one
+    @Transactional(readOnly = true)
+    public long exportAll(long afterId, OutputStream out) throws IOException {
+        long written = 0;
+        try (Stream<SensorData> rows = sensorDataRepository.streamByIdGreaterThan(afterId);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            Iterator<SensorData> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                SensorData row = iterator.next();
+                generator.writeObject(row);
+                entityManager.detach(row);
+                if (++written % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+            generator.writeEndArray();
+        }
+        return written;
+    }
+}
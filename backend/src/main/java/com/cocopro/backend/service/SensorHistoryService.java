@@ -0,0 +1,99 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.SensorData;
+import com.cocopro.backend.repository.SensorDataRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves recent sensor history from memory. Every accepted reading is recorded into
+ * a per-device rolling window, which is warmed from MySQL once at startup so the
+ * dashboard endpoints never query the database.
+ */
+@Service
+public class SensorHistoryService {
+
+    private final SensorDataRepository sensorDataRepository;
+    private final SensorDeadbandFilter deadbandFilter;
+    private final int windowHours;
+    private final int windowCapacity;
+    private final Map<String, SensorHistoryWindow> windows = new ConcurrentHashMap<>();
+
+    public SensorHistoryService(SensorDataRepository sensorDataRepository,
+                                SensorDeadbandFilter deadbandFilter,
+                                @Value("${sensor.window.hours:5}") int windowHours,
+                                @Value("${sensor.window.capacity:8192}") int windowCapacity) {
+        this.sensorDataRepository = sensorDataRepository;
+        this.deadbandFilter = deadbandFilter;
+        this.windowHours = windowHours;
+        this.windowCapacity = windowCapacity;
+    }
+
+    @PostConstruct
+    public void warm() {
+        List<SensorData> recent = sensorDataRepository
+                .findByTimestampAfterOrderByTimestampAsc(LocalDateTime.now().minusHours(windowHours));
+        // sensor_data only keeps changes, so restore the step before each one
+        Map<String, SensorData> previous = new HashMap<>();
+        for (SensorData reading : recent) {
+            SensorData hold = deadbandFilter.lastSuppressed(previous.put(deviceIdOf(reading), reading), reading);
+            if (hold != null) {
+                record(hold);
+            }
+            record(reading);
+        }
+
+        // Keep /latest answering from memory even when nothing arrived within the window
+        if (recent.isEmpty()) {
+            SensorData latest = sensorDataRepository.findTopByOrderByIdDesc();
+            if (latest != null) {
+                record(latest);
+            }
+        }
+        System.out.println("Sensor history warmed with " + recent.size() + " readings");
+    }
+
+    public void record(SensorData reading) {
+        window(deviceIdOf(reading)).append(
+                SensorSeries.toEpochMillis(reading.getTimestamp()),
+                reading.getTemperature(),
+                reading.getHumidity(),
+                reading.getMoisture(),
+                reading.getRpm());
+    }
+
+    public SensorSeries since(String deviceId, LocalDateTime from) {
+        SensorHistoryWindow window = windows.get(deviceId);
+        if (window == null) {
+            return SensorSeries.empty(deviceId);
+        }
+        return window.since(SensorSeries.toEpochMillis(from));
+    }
+
+    public SensorSeries lastHours(String deviceId) {
+        return since(deviceId, LocalDateTime.now().minusHours(windowHours));
+    }
+
+    public SensorData latest(String deviceId) {
+        SensorHistoryWindow window = windows.get(deviceId);
+        SensorSeries latest = window == null ? null : window.latest();
+        return latest == null ? null : latest.toSensorData(0);
+    }
+
+    private SensorHistoryWindow window(String deviceId) {
+        return windows.computeIfAbsent(deviceId, id ->
+                new SensorHistoryWindow(id, windowCapacity, TimeUnit.HOURS.toMillis(windowHours)));
+    }
+
+    private static String deviceIdOf(SensorData reading) {
+        return reading.getDeviceId() == null ? SensorData.DEFAULT_DEVICE_ID : reading.getDeviceId();
+    }
+}
@@ -0,0 +1,127 @@
+package com.cocopro.backend.service;
+
+/**
+ * Fixed-size circular buffer holding one device's most recent readings in parallel
+ * primitive arrays, kept in timestamp order. Readings older than the retention
+ * period (relative to the newest reading) are evicted on append.
+ */
+class SensorHistoryWindow {
+
+    private final String deviceId;
+    private final long retentionMillis;
+    private final long[] timestamps;
+    private final float[] temperature;
+    private final float[] humidity;
+    private final int[] moisture;
+    private final int[] rpm;
+
+    private int start;
+    private int size;
+
+    SensorHistoryWindow(String deviceId, int capacity, long retentionMillis) {
+        this.deviceId = deviceId;
+        this.retentionMillis = retentionMillis;
+        this.timestamps = new long[capacity];
+        this.temperature = new float[capacity];
+        this.humidity = new float[capacity];
+        this.moisture = new int[capacity];
+        this.rpm = new int[capacity];
+    }
+
+    synchronized void append(long timestamp, float temp, float hum, int moist, int revs) {
+        int capacity = timestamps.length;
+        if (size > 0 && timestamp < timestamps[physical(size - 1)] - retentionMillis) {
+            return;
+        }
+        if (size == capacity) {
+            dropOldest();
+        }
+
+        // Device-side timestamps from buffered batches can arrive slightly out of order
+        int position = size;
+        while (position > 0 && timestamps[physical(position - 1)] > timestamp) {
+            int from = physical(position - 1);
+            int to = physical(position);
+            timestamps[to] = timestamps[from];
+            temperature[to] = temperature[from];
+            humidity[to] = humidity[from];
+            moisture[to] = moisture[from];
+            rpm[to] = rpm[from];
+            position--;
+        }
+
+        int slot = physical(position);
+        timestamps[slot] = timestamp;
+        temperature[slot] = temp;
+        humidity[slot] = hum;
+        moisture[slot] = moist;
+        rpm[slot] = revs;
+        size++;
+
+        long cutoff = timestamps[physical(size - 1)] - retentionMillis;
+        while (size > 1 && timestamps[start] < cutoff) {
+            dropOldest();
+        }
+    }
+
+    synchronized SensorSeries since(long fromMillis) {
+        int first = firstAtOrAfter(fromMillis);
+        return copy(first, size - first);
+    }
+
+    synchronized SensorSeries latest() {
+        return size == 0 ? null : copy(size - 1, 1);
+    }
+
+    synchronized long oldestTimestamp() {
+        return size == 0 ? Long.MAX_VALUE : timestamps[start];
+    }
+
+    private int firstAtOrAfter(long fromMillis) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[physical(mid)] < fromMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private SensorSeries copy(int logicalStart, int count) {
+        long[] ts = new long[count];
+        float[] temp = new float[count];
+        float[] hum = new float[count];
+        int[] moist = new int[count];
+        int[] revs = new int[count];
+
+        int from = physical(logicalStart);
+        int firstRun = Math.min(count, timestamps.length - from);
+        copyRun(from, 0, firstRun, ts, temp, hum, moist, revs);
+        copyRun(0, firstRun, count - firstRun, ts, temp, hum, moist, revs);
+        return new SensorSeries(deviceId, ts, temp, hum, moist, revs);
+    }
+
+    private void copyRun(int from, int to, int length, long[] ts, float[] temp, float[] hum, int[] moist, int[] revs) {
+        if (length <= 0) {
+            return;
+        }
+        System.arraycopy(timestamps, from, ts, to, length);
+        System.arraycopy(temperature, from, temp, to, length);
+        System.arraycopy(humidity, from, hum, to, length);
+        System.arraycopy(moisture, from, moist, to, length);
+        System.arraycopy(rpm, from, revs, to, length);
+    }
+
+    private void dropOldest() {
+        start = (start + 1) % timestamps.length;
+        size--;
+    }
+
+    private int physical(int logicalIndex) {
+        return (start + logicalIndex) % timestamps.length;
+    }
+}
@@ -0,0 +1,501 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.SensorData;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of accepted sensor readings on local disk, so readings survive MySQL
+ * outages and restarts. Readings are appended to memory-mapped segment files and a reading is
+ * only acknowledged once its bytes are forced to disk; concurrent appenders share one force
+ * (group commit). The write-behind writer replays the journal into MySQL from the last
+ * checkpoint and advances the checkpoint after each successful insert, which makes delivery
+ * at-least-once: a crash between insert and checkpoint replays that batch.
+ *
+ * The journal is a fixed set of preallocated slot files. Each segment header carries a
+ * sequence number that is never handed out twice; fully checkpointed segments are recycled
+ * by rewriting that header, and record checksums are salted with it so leftovers from a
+ * previous use read as end of data. Segments found past a torn write on recovery are marked
+ * retired, so a later recovery cannot mistake their records for data.
+ * When every slot holds unreplayed readings the journal is full and appends are refused.
+ */
+@Service
+public class SensorJournal {
+
+    private static final int MAGIC = 0x534A524E; // "SJRN"
+    private static final int HEADER_SIZE = 16;
+    private static final int RETIRED = 1;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int FIXED_PAYLOAD_SIZE = 24;
+    private static final int MAX_DEVICE_ID_BYTES = 255;
+    private static final int TYPICAL_DEVICE_ID_BYTES = 16;
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String LOCK_FILE = "journal.lock";
+
+    private final boolean configuredEnabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    private boolean enabled;
+    private FileChannel lockChannel;
+
+    // Active segments by sequence; the last one is being written
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Deque<Segment> spare = new ArrayDeque<>();
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    private final CRC32C appendChecksum = new CRC32C();
+    private final CRC32C readChecksum = new CRC32C();
+    private int slotCount;
+    private long nextSequence = 1;
+
+    private Segment writeSegment;
+    private int writeOffset;
+    private volatile Cursor written;
+    private volatile Cursor durable;
+    private volatile Cursor checkpoint;
+
+    private volatile long appended;
+    private volatile long committed;
+    private final LongAdder refused = new LongAdder();
+    private volatile long forces;
+
+    public SensorJournal(@Value("${sensor.journal.enabled:true}") boolean enabled,
+                         @Value("${sensor.journal.dir:data/sensor-journal}") String directory,
+                         @Value("${sensor.journal.segment-size-mb:16}") int segmentSizeMb,
+                         @Value("${sensor.journal.max-segments:8}") int maxSegments) {
+        this.configuredEnabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSizeMb * 1024 * 1024;
+        this.maxSegments = Math.max(2, maxSegments);
+    }
+
+    @PostConstruct
+    public void open() {
+        if (!configuredEnabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            lock();
+            recover();
+            enabled = true;
+            System.out.println("Sensor journal opened at " + directory.toAbsolutePath()
+                    + " with " + (appended - committed) + " readings to replay");
+        } catch (IOException | UncheckedIOException e) {
+            // Ingest keeps working through the in-memory queue, just without crash safety
+            System.err.println("Sensor journal disabled, cannot open " + directory.toAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (syncLock) {
+            for (Segment segment : segments.values()) {
+                segment.buffer.force();
+            }
+        }
+        for (Segment segment : segments.values()) {
+            closeQuietly(segment);
+        }
+        for (Segment segment : spare) {
+            closeQuietly(segment);
+        }
+        try {
+            lockChannel.close();
+        } catch (IOException e) {
+            // Released by the OS on exit anyway
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Returns once the reading is on disk; false when the journal is full or the disk failed
+    public boolean append(SensorData reading) {
+        byte[] deviceId = reading.getDeviceId().getBytes(StandardCharsets.UTF_8);
+        if (deviceId.length > MAX_DEVICE_ID_BYTES) {
+            refused.increment();
+            return false;
+        }
+        int payloadSize = FIXED_PAYLOAD_SIZE + deviceId.length;
+        ByteBuffer payload = ByteBuffer.allocate(payloadSize);
+        payload.putLong(SensorSeries.toEpochMillis(reading.getTimestamp()));
+        payload.putFloat(reading.getTemperature());
+        payload.putFloat(reading.getHumidity());
+        payload.putInt(reading.getMoisture());
+        payload.putInt(reading.getRpm());
+        payload.put(deviceId);
+        byte[] bytes = payload.array();
+
+        Cursor target;
+        try {
+            synchronized (appendLock) {
+                if (writeOffset + RECORD_HEADER_SIZE + payloadSize > segmentSize) {
+                    if (writeOffset + Integer.BYTES <= segmentSize) {
+                        writeSegment.buffer.putInt(writeOffset, 0);
+                    }
+                    if (!roll()) {
+                        refused.increment();
+                        return false;
+                    }
+                }
+                MappedByteBuffer buffer = writeSegment.buffer;
+                buffer.put(writeOffset + RECORD_HEADER_SIZE, bytes);
+                buffer.putInt(writeOffset + Integer.BYTES, checksum(appendChecksum, writeSegment.sequence, bytes, bytes.length));
+                // The length goes last, a record is only visible to a scan once it is complete
+                buffer.putInt(writeOffset, payloadSize);
+                writeOffset += RECORD_HEADER_SIZE + payloadSize;
+                target = new Cursor(writeSegment.sequence, writeOffset);
+                written = target;
+                appended++;
+            }
+            sync(target);
+            return true;
+        } catch (UncheckedIOException e) {
+            refused.increment();
+            System.err.println("Failed to journal sensor reading: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Reads up to max readings after the checkpoint; pass the returned cursor to commit() once they are stored
+    public Cursor read(List<SensorData> out, int max) {
+        Cursor end = written;
+        Cursor cursor = checkpoint;
+        byte[] bytes = new byte[FIXED_PAYLOAD_SIZE + MAX_DEVICE_ID_BYTES];
+        while (out.size() < max && cursor.compareTo(end) < 0) {
+            Segment segment = segments.get(cursor.segment);
+            int length = recordLength(segment, cursor.offset, bytes);
+            if (length < 0) {
+                if (cursor.segment == end.segment) {
+                    break;
+                }
+                // Rest of a sealed segment is unused, continue with the next one
+                cursor = new Cursor(segments.higherKey(cursor.segment), HEADER_SIZE);
+                continue;
+            }
+            out.add(decode(bytes, length));
+            cursor = new Cursor(cursor.segment, cursor.offset + RECORD_HEADER_SIZE + length);
+        }
+        return cursor;
+    }
+
+    // Called by the writer after a batch is in MySQL; recycles segments that are fully replayed
+    public void commit(Cursor cursor, int count) {
+        try {
+            Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+            ByteBuffer data = ByteBuffer.allocate(12).putLong(cursor.segment).putInt(cursor.offset);
+            Files.write(temporary, data.array());
+            Files.move(temporary, directory.resolve(CHECKPOINT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The next commit retries; until then a restart replays a little more than needed
+            System.err.println("Failed to write sensor journal checkpoint: " + e.getMessage());
+        }
+        checkpoint = cursor;
+        committed += count;
+
+        synchronized (appendLock) {
+            while (segments.firstKey() < cursor.segment) {
+                spare.push(segments.pollFirstEntry().getValue());
+            }
+        }
+    }
+
+    public long pending() {
+        return appended - committed;
+    }
+
+    // Approximate number of readings the journal holds when full; the exact figure depends on device id lengths
+    public long capacity() {
+        long perSegment = (segmentSize - HEADER_SIZE) / (RECORD_HEADER_SIZE + FIXED_PAYLOAD_SIZE + TYPICAL_DEVICE_ID_BYTES);
+        return perSegment * maxSegments;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (enabled) {
+            stats.put("pending", pending());
+            stats.put("appended", appended);
+            stats.put("committed", committed);
+            stats.put("refused", refused.sum());
+            stats.put("forces", forces);
+            stats.put("activeSegments", segments.size());
+            stats.put("maxSegments", maxSegments);
+        }
+        return stats;
+    }
+
+    // Group commit: whoever gets the lock forces everything written so far, later callers find their record already durable
+    private void sync(Cursor target) {
+        if (durable.compareTo(target) >= 0) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durable.compareTo(target) >= 0) {
+                return;
+            }
+            Cursor upTo = written;
+            Cursor from = durable;
+            for (Segment segment : segments.subMap(from.segment, true, upTo.segment, true).values()) {
+                int start = segment.sequence == from.segment ? from.offset : 0;
+                int end = segment.sequence == upTo.segment ? upTo.offset : segmentSize;
+                segment.buffer.force(start, end - start);
+            }
+            forces++;
+            durable = upTo;
+        }
+    }
+
+    private boolean roll() {
+        Segment next = spare.poll();
+        if (next == null) {
+            if (slotCount == maxSegments) {
+                return false;
+            }
+            next = openSlot(slotCount++);
+        }
+        long sequence = nextSequence++;
+        next.reset(sequence);
+        segments.put(sequence, next);
+        writeSegment = next;
+        writeOffset = HEADER_SIZE;
+        return true;
+    }
+
+    // Two instances replaying one journal would insert every reading twice
+    private void lock() throws IOException {
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        boolean locked;
+        try {
+            locked = lockChannel.tryLock() != null;
+        } catch (OverlappingFileLockException e) {
+            locked = false;
+        }
+        if (!locked) {
+            lockChannel.close();
+            throw new IOException("journal is in use by another instance");
+        }
+    }
+
+    private void recover() throws IOException {
+        Map<Long, Segment> found = new TreeMap<>();
+        for (int slot = 0; slot < maxSegments; slot++) {
+            if (!Files.exists(slotPath(slot))) {
+                break;
+            }
+            Segment segment = openSlot(slot);
+            slotCount++;
+            if (segment.buffer.getInt(0) == MAGIC) {
+                segment.sequence = segment.buffer.getLong(8);
+                // Retired and recycled slots still count, their records are salted with that sequence
+                nextSequence = Math.max(nextSequence, segment.sequence + 1);
+                if (segment.buffer.getInt(4) == RETIRED) {
+                    spare.push(segment);
+                } else {
+                    found.put(segment.sequence, segment);
+                }
+            } else {
+                spare.push(segment);
+            }
+        }
+
+        Cursor saved = readCheckpoint();
+        if (saved != null) {
+            nextSequence = Math.max(nextSequence, saved.segment);
+        }
+        for (Segment segment : found.values()) {
+            if (saved != null && segment.sequence < saved.segment) {
+                spare.push(segment);
+            } else {
+                segments.put(segment.sequence, segment);
+            }
+        }
+
+        if (segments.isEmpty()) {
+            Segment first = spare.isEmpty() ? openSlot(slotCount++) : spare.poll();
+            long sequence = nextSequence++;
+            first.reset(sequence);
+            segments.put(sequence, first);
+            saved = null;
+        }
+        if (saved == null || !segments.containsKey(saved.segment)) {
+            saved = new Cursor(segments.firstKey(), HEADER_SIZE);
+        }
+        checkpoint = saved;
+
+        // Walk from the checkpoint to the end of valid data to find the write position and the backlog size
+        byte[] bytes = new byte[FIXED_PAYLOAD_SIZE + MAX_DEVICE_ID_BYTES];
+        long backlog = 0;
+        Cursor cursor = saved;
+        while (true) {
+            Segment segment = segments.get(cursor.segment);
+            int length = recordLength(segment, cursor.offset, bytes);
+            Long next = segments.higherKey(cursor.segment);
+            if (length >= 0) {
+                backlog++;
+                cursor = new Cursor(cursor.segment, cursor.offset + RECORD_HEADER_SIZE + length);
+            } else if (next != null && sealedEnd(segment, cursor.offset)) {
+                cursor = new Cursor(next, HEADER_SIZE);
+            } else {
+                break;
+            }
+        }
+        writeSegment = segments.get(cursor.segment);
+        writeOffset = cursor.offset;
+        // Segments past a torn write hold nothing usable
+        while (segments.lastKey() > writeSegment.sequence) {
+            Segment retired = segments.pollLastEntry().getValue();
+            retired.retire();
+            spare.push(retired);
+        }
+        written = cursor;
+        durable = cursor;
+        appended = backlog;
+    }
+
+    private Cursor readCheckpoint() throws IOException {
+        Path path = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        byte[] data = Files.readAllBytes(path);
+        if (data.length != 12) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        return new Cursor(buffer.getLong(), buffer.getInt());
+    }
+
+    // A segment is sealed by a zero length after its last record, or by leaving no room for another length
+    private boolean sealedEnd(Segment segment, int offset) {
+        return offset + Integer.BYTES > segmentSize || segment.buffer.getInt(offset) == 0;
+    }
+
+    // Copies the payload at offset into bytes and returns its length, or -1 when no valid record is there
+    private int recordLength(Segment segment, int offset, byte[] bytes) {
+        if (offset + RECORD_HEADER_SIZE > segmentSize) {
+            return -1;
+        }
+        MappedByteBuffer buffer = segment.buffer;
+        int length = buffer.getInt(offset);
+        if (length < FIXED_PAYLOAD_SIZE || length > bytes.length || offset + RECORD_HEADER_SIZE + length > segmentSize) {
+            return -1;
+        }
+        buffer.get(offset + RECORD_HEADER_SIZE, bytes, 0, length);
+        if (buffer.getInt(offset + Integer.BYTES) != checksum(readChecksum, segment.sequence, bytes, length)) {
+            return -1;
+        }
+        return length;
+    }
+
+    private static SensorData decode(byte[] bytes, int length) {
+        ByteBuffer payload = ByteBuffer.wrap(bytes, 0, length);
+        SensorData reading = new SensorData();
+        reading.setTimestamp(SensorSeries.fromEpochMillis(payload.getLong()));
+        reading.setTemperature(payload.getFloat());
+        reading.setHumidity(payload.getFloat());
+        reading.setMoisture(payload.getInt());
+        reading.setRpm(payload.getInt());
+        reading.setDeviceId(new String(bytes, FIXED_PAYLOAD_SIZE, length - FIXED_PAYLOAD_SIZE, StandardCharsets.UTF_8));
+        return reading;
+    }
+
+    private static int checksum(CRC32C crc, long sequence, byte[] bytes, int length) {
+        synchronized (crc) {
+            crc.reset();
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                crc.update((int) (sequence >>> shift));
+            }
+            crc.update(bytes, 0, length);
+            return (int) crc.getValue();
+        }
+    }
+
+    private Segment openSlot(int slot) {
+        try {
+            FileChannel channel = FileChannel.open(slotPath(slot),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            return new Segment(channel, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path slotPath(int slot) {
+        return directory.resolve(String.format("segment-%02d.dat", slot));
+    }
+
+    private static void closeQuietly(Segment segment) {
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            // Nothing left to do with it
+        }
+    }
+
+    public record Cursor(long segment, int offset) implements Comparable<Cursor> {
+        @Override
+        public int compareTo(Cursor other) {
+            int bySegment = Long.compare(segment, other.segment);
+            return bySegment != 0 ? bySegment : Integer.compare(offset, other.offset);
+        }
+    }
+
+    private static class Segment {
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private long sequence;
+
+        Segment(FileChannel channel, MappedByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        void reset(long sequence) {
+            this.sequence = sequence;
+            buffer.putInt(HEADER_SIZE, 0);
+            buffer.putLong(8, sequence);
+            buffer.putInt(4, 0);
+            buffer.putInt(0, MAGIC);
+            buffer.force(0, HEADER_SIZE + Integer.BYTES);
+        }
+
+        void retire() {
+            buffer.putInt(4, RETIRED);
+            buffer.force(0, HEADER_SIZE);
+        }
+    }
+}
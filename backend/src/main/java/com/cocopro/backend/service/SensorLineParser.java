@@ -0,0 +1,88 @@
+package com.cocopro.backend.service;
+
+/**
+ * Parses a serial line of comma separated numbers ("temperature,humidity,moisture[,rpm]")
+ * straight from the receive buffer into a reusable float array, without building Strings.
+ * Not thread-safe: each serial port reader owns its own parser.
+ */
+class SensorLineParser {
+
+    static final int MAX_FIELDS = 4;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private final float[] fields = new float[MAX_FIELDS];
+
+    // Returns the number of fields parsed, or -1 when the line is not a reading (e.g. firmware log output)
+    int parse(byte[] line, int length) {
+        int count = 0;
+        int position = 0;
+        while (position < length) {
+            if (count == MAX_FIELDS) {
+                return -1;
+            }
+            int end = position;
+            while (end < length && line[end] != ',') {
+                end++;
+            }
+            if (!parseNumber(line, position, end, count)) {
+                return -1;
+            }
+            count++;
+            position = end + 1;
+        }
+        return count;
+    }
+
+    float field(int index) {
+        return fields[index];
+    }
+
+    private boolean parseNumber(byte[] line, int from, int to, int fieldIndex) {
+        while (from < to && line[from] == ' ') {
+            from++;
+        }
+        while (to > from && line[to - 1] == ' ') {
+            to--;
+        }
+        if (from == to) {
+            return false;
+        }
+
+        boolean negative = line[from] == '-';
+        if (negative || line[from] == '+') {
+            from++;
+        }
+
+        long mantissa = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean fraction = false;
+        for (int i = from; i < to; i++) {
+            byte b = line[i];
+            if (b == '.' && !fraction) {
+                fraction = true;
+            } else if (b >= '0' && b <= '9') {
+                if (digits < 15) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    if (fraction) {
+                        scale++;
+                    }
+                } else if (!fraction) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+
+        double value = mantissa / POWERS_OF_TEN[scale];
+        fields[fieldIndex] = (float) (negative ? -value : value);
+        return true;
+    }
+}
@@ -0,0 +1,101 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.RollupResolution;
+import com.cocopro.backend.model.SensorData;
+import com.cocopro.backend.model.SensorRollup;
+import com.cocopro.backend.repository.SensorRollupRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains min/max/avg/count aggregates per device at minute, hour and day resolution.
+ * Readings are folded into in-memory partial aggregates as they arrive; a background
+ * task periodically merges those partials into the sensor_rollups table, so history
+ * charts read one row per bucket instead of scanning raw sensor_data.
+ */
+@Service
+public class SensorRollupService {
+
+    private final SensorRollupRepository sensorRollupRepository;
+    private final long flushIntervalMs;
+    private final Map<RollupKey, SensorRollup> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    public SensorRollupService(SensorRollupRepository sensorRollupRepository,
+                               @Value("${sensor.rollup.flush-interval-ms:10000}") long flushIntervalMs) {
+        this.sensorRollupRepository = sensorRollupRepository;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sensor-rollup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    public void record(SensorData reading) {
+        for (RollupResolution resolution : RollupResolution.values()) {
+            RollupKey key = new RollupKey(reading.getDeviceId(), resolution,
+                    resolution.bucketStart(reading.getTimestamp()));
+            pending.compute(key, (k, partial) -> {
+                if (partial == null) {
+                    partial = new SensorRollup(k.deviceId(), k.resolution(), k.bucketStart());
+                }
+                partial.add(reading);
+                return partial;
+            });
+        }
+    }
+
+    public List<SensorRollup> series(String deviceId, RollupResolution resolution, LocalDateTime from, LocalDateTime to) {
+        return sensorRollupRepository.findByDeviceIdAndResolutionAndBucketStartBetweenOrderByBucketStartAsc(
+                deviceId, resolution, resolution.bucketStart(from), to);
+    }
+
+    synchronized void flush() {
+        for (RollupKey key : pending.keySet()) {
+            SensorRollup partial = pending.remove(key);
+            if (partial == null) {
+                continue;
+            }
+            try {
+                SensorRollup row = sensorRollupRepository
+                        .findByDeviceIdAndResolutionAndBucketStart(key.deviceId(), key.resolution(), key.bucketStart())
+                        .orElseGet(() -> new SensorRollup(key.deviceId(), key.resolution(), key.bucketStart()));
+                row.merge(partial);
+                sensorRollupRepository.save(row);
+            } catch (RuntimeException e) {
+                // Keep the partial so the next flush retries it together with newer readings
+                pending.merge(key, partial, (newer, failed) -> {
+                    newer.merge(failed);
+                    return newer;
+                });
+                System.err.println("Failed to flush sensor rollup " + key + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private record RollupKey(String deviceId, RollupResolution resolution, LocalDateTime bucketStart) {
+    }
+}
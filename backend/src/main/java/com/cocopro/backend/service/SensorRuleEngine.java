@@ -0,0 +1,251 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.DeviceCommand;
+import com.cocopro.backend.model.IssueReport;
+import com.cocopro.backend.model.SensorData;
+import com.cocopro.backend.model.User;
+import com.cocopro.backend.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluates every accepted reading against windowed safety rules, in constant time per
+ * reading and without touching the database:
+ * OVERHEAT - temperature above a threshold for a sustained duration (the firmware's SSR rule),
+ * RAPID_RISE - temperature rising more than a limit within a sliding window,
+ * FLATLINE - temperature and humidity not changing at all for hours (stuck sensor).
+ * OVERHEAT and RAPID_RISE put the dryer into emergency stop, push the command to the device
+ * and raise a MACHINE_ERROR issue for a manager. FLATLINE only raises the issue, once per
+ * stuck stretch: the DHT11 reports whole degrees, so a healthy dryer at a steady temperature
+ * can legitimately read the same values for a long time. The actions run on a separate
+ * thread so ingest never waits on them, and each rule has a per-device cooldown so one fault
+ * raises one issue.
+ */
+@Service
+public class SensorRuleEngine {
+
+    private static final String OVERHEAT = "OVERHEAT";
+    private static final String RAPID_RISE = "RAPID_RISE";
+    private static final String FLATLINE = "FLATLINE";
+
+    private static final String MANAGER_ROLE = "MANAGER";
+
+    private final DeviceControlRegistry deviceControlRegistry;
+    private final DeviceCommandService deviceCommandService;
+    private final IssueReportService issueReportService;
+    private final UserRepository userRepository;
+
+    private final float overheatThreshold;
+    private final long overheatMillis;
+    private final float maxRise;
+    private final long riseWindowMillis;
+    private final long flatlineMillis;
+    private final long cooldownMillis;
+
+    private final Map<String, DeviceRules> devices = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> matches = new ConcurrentHashMap<>();
+    private ExecutorService actions;
+
+    public SensorRuleEngine(DeviceControlRegistry deviceControlRegistry,
+                            DeviceCommandService deviceCommandService,
+                            IssueReportService issueReportService,
+                            UserRepository userRepository,
+                            @Value("${sensor.rules.overheat.threshold:35}") float overheatThreshold,
+                            @Value("${sensor.rules.overheat.seconds:10}") long overheatSeconds,
+                            @Value("${sensor.rules.rise.max-degrees:5}") float maxRise,
+                            @Value("${sensor.rules.rise.window-seconds:60}") long riseWindowSeconds,
+                            @Value("${sensor.rules.flatline.minutes:240}") long flatlineMinutes,
+                            @Value("${sensor.rules.cooldown-seconds:300}") long cooldownSeconds) {
+        this.deviceControlRegistry = deviceControlRegistry;
+        this.deviceCommandService = deviceCommandService;
+        this.issueReportService = issueReportService;
+        this.userRepository = userRepository;
+        this.overheatThreshold = overheatThreshold;
+        this.overheatMillis = TimeUnit.SECONDS.toMillis(overheatSeconds);
+        this.maxRise = maxRise;
+        this.riseWindowMillis = TimeUnit.SECONDS.toMillis(riseWindowSeconds);
+        this.flatlineMillis = TimeUnit.MINUTES.toMillis(flatlineMinutes);
+        this.cooldownMillis = TimeUnit.SECONDS.toMillis(cooldownSeconds);
+    }
+
+    @PostConstruct
+    public void start() {
+        actions = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sensor-rules");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        actions.shutdown();
+        actions.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public void evaluate(SensorData reading) {
+        String deviceId = reading.getDeviceId();
+        long timestamp = SensorSeries.toEpochMillis(reading.getTimestamp());
+        float temperature = reading.getTemperature();
+        float humidity = reading.getHumidity();
+
+        DeviceRules rules = devices.computeIfAbsent(deviceId, id -> new DeviceRules());
+        String rule = null;
+        String description = null;
+        boolean stop = true;
+        synchronized (rules) {
+            // Buffered batches replay older readings; the rules only follow the live edge
+            if (timestamp < rules.lastTimestamp) {
+                return;
+            }
+            rules.lastTimestamp = timestamp;
+
+            if (temperature > overheatThreshold) {
+                if (rules.overheatSince < 0) {
+                    rules.overheatSince = timestamp;
+                }
+                if (timestamp - rules.overheatSince >= overheatMillis && rules.cooldownOver(OVERHEAT, timestamp, cooldownMillis)) {
+                    rule = OVERHEAT;
+                    description = String.format("Temperature above %.1f°C for %d s (now %.1f°C)",
+                            overheatThreshold, (timestamp - rules.overheatSince) / 1000, temperature);
+                }
+            } else {
+                rules.overheatSince = -1;
+            }
+
+            float windowMin = rules.recentMin.push(timestamp, temperature, riseWindowMillis);
+            if (rule == null && temperature - windowMin > maxRise && rules.cooldownOver(RAPID_RISE, timestamp, cooldownMillis)) {
+                rule = RAPID_RISE;
+                description = String.format("Temperature rose %.1f°C within %d s (now %.1f°C)",
+                        temperature - windowMin, riseWindowMillis / 1000, temperature);
+            }
+
+            if (rules.flatSince < 0 || temperature != rules.flatTemperature || humidity != rules.flatHumidity) {
+                rules.flatSince = timestamp;
+                rules.flatTemperature = temperature;
+                rules.flatHumidity = humidity;
+                rules.flatReported = false;
+            } else if (rule == null && !rules.flatReported && timestamp - rules.flatSince >= flatlineMillis) {
+                rules.flatReported = true;
+                rule = FLATLINE;
+                stop = false;
+                description = String.format("Sensor stuck at %.1f°C / %.1f%% for %d min",
+                        temperature, humidity, (timestamp - rules.flatSince) / 60000);
+            }
+        }
+
+        if (rule != null) {
+            raise(deviceId, rule, description, stop);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (String rule : List.of(OVERHEAT, RAPID_RISE, FLATLINE)) {
+            LongAdder count = matches.get(rule);
+            stats.put(rule, count == null ? 0 : count.sum());
+        }
+        return stats;
+    }
+
+    private void raise(String deviceId, String rule, String description, boolean stop) {
+        matches.computeIfAbsent(rule, key -> new LongAdder()).increment();
+        System.out.println("Rule " + rule + " matched on " + deviceId + ": " + description);
+        actions.execute(() -> {
+            try {
+                if (stop) {
+                    deviceCommandService.issue(deviceId, DeviceCommand.EMERGENCY_STOP);
+                    deviceControlRegistry.emergencyStop(deviceId);
+                }
+
+                // Issues are addressed to a manager; without one there is nobody to show it to
+                User manager = manager();
+                if (manager == null) {
+                    System.err.println("No " + MANAGER_ROLE + " user to report rule " + rule + " on " + deviceId + " to");
+                    return;
+                }
+                IssueReport report = new IssueReport();
+                report.setIssueType("MACHINE_ERROR");
+                report.setDescription(rule + " on " + deviceId + ": " + description);
+                report.setWorkerName("System");
+                report.setManager(manager);
+                report.setCreatedAt(LocalDateTime.now());
+                issueReportService.save(report);
+            } catch (RuntimeException e) {
+                System.err.println("Failed to act on rule " + rule + " for " + deviceId + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private User manager() {
+        List<User> managers = userRepository.findByRole(MANAGER_ROLE);
+        return managers.isEmpty() ? null : managers.get(0);
+    }
+
+    private static class DeviceRules {
+        private long lastTimestamp = Long.MIN_VALUE;
+        private long overheatSince = -1;
+        private long flatSince = -1;
+        private float flatTemperature;
+        private float flatHumidity;
+        private boolean flatReported;
+        private final SlidingMinimum recentMin = new SlidingMinimum(256);
+        private final Map<String, Long> lastMatch = new LinkedHashMap<>();
+
+        boolean cooldownOver(String rule, long timestamp, long cooldownMillis) {
+            Long last = lastMatch.get(rule);
+            if (last != null && timestamp - last < cooldownMillis) {
+                return false;
+            }
+            lastMatch.put(rule, timestamp);
+            return true;
+        }
+    }
+
+    // Monotonic deque over a time window: amortised O(1) push, minimum always at the head
+    private static class SlidingMinimum {
+        private final long[] timestamps;
+        private final float[] values;
+        private int head;
+        private int size;
+
+        SlidingMinimum(int capacity) {
+            timestamps = new long[capacity];
+            values = new float[capacity];
+        }
+
+        float push(long timestamp, float value, long windowMillis) {
+            while (size > 0 && values[index(size - 1)] >= value) {
+                size--;
+            }
+            if (size == timestamps.length) {
+                head = index(1);
+                size--;
+            }
+            timestamps[index(size)] = timestamp;
+            values[index(size)] = value;
+            size++;
+            while (timestamps[head] < timestamp - windowMillis) {
+                head = index(1);
+                size--;
+            }
+            return values[head];
+        }
+
+        private int index(int offset) {
+            return (head + offset) % timestamps.length;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.SensorData;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable column-oriented copy of a device's readings, ordered by timestamp.
+ * Values stay in primitive arrays until a response actually needs SensorData objects.
+ */
+public class SensorSeries {
+
+    private final String deviceId;
+    private final long[] timestamps;
+    private final float[] temperature;
+    private final float[] humidity;
+    private final int[] moisture;
+    private final int[] rpm;
+
+    public SensorSeries(String deviceId, long[] timestamps, float[] temperature, float[] humidity,
+                        int[] moisture, int[] rpm) {
+        this.deviceId = deviceId;
+        this.timestamps = timestamps;
+        this.temperature = temperature;
+        this.humidity = humidity;
+        this.moisture = moisture;
+        this.rpm = rpm;
+    }
+
+    public static SensorSeries empty(String deviceId) {
+        return new SensorSeries(deviceId, new long[0], new float[0], new float[0], new int[0], new int[0]);
+    }
+
+    public static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public static LocalDateTime fromEpochMillis(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public float getTemperature(int index) {
+        return temperature[index];
+    }
+
+    public float getHumidity(int index) {
+        return humidity[index];
+    }
+
+    public int getMoisture(int index) {
+        return moisture[index];
+    }
+
+    public int getRpm(int index) {
+        return rpm[index];
+    }
+
+    // Copy of the readings at the given ascending indices
+    public SensorSeries select(int[] indices) {
+        int count = indices.length;
+        long[] selectedTimestamps = new long[count];
+        float[] selectedTemperature = new float[count];
+        float[] selectedHumidity = new float[count];
+        int[] selectedMoisture = new int[count];
+        int[] selectedRpm = new int[count];
+        for (int i = 0; i < count; i++) {
+            int index = indices[i];
+            selectedTimestamps[i] = timestamps[index];
+            selectedTemperature[i] = temperature[index];
+            selectedHumidity[i] = humidity[index];
+            selectedMoisture[i] = moisture[index];
+            selectedRpm[i] = rpm[index];
+        }
+        return new SensorSeries(deviceId, selectedTimestamps, selectedTemperature, selectedHumidity,
+                selectedMoisture, selectedRpm);
+    }
+
+    public SensorData toSensorData(int index) {
+        SensorData reading = new SensorData();
+        reading.setDeviceId(deviceId);
+        reading.setTimestamp(fromEpochMillis(timestamps[index]));
+        reading.setTemperature(temperature[index]);
+        reading.setHumidity(humidity[index]);
+        reading.setMoisture(moisture[index]);
+        reading.setRpm(rpm[index]);
+        return reading;
+    }
+
+    public List<SensorData> toSensorData() {
+        List<SensorData> readings = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            readings.add(toSensorData(i));
+        }
+        return readings;
+    }
+}
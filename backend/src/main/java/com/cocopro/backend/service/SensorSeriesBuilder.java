@@ -0,0 +1,113 @@
+package com.cocopro.backend.service;
+
+import java.util.Arrays;
+
+/**
+ * Growable primitive columns used to assemble a SensorSeries from several sources,
+ * e.g. decoded blocks plus the still-open buffer. Each source is sorted, but sources can
+ * overlap in time when late readings were sealed into a newer block, so every drop in
+ * timestamp starts a new run and build merges the runs into timestamp order.
+ */
+class SensorSeriesBuilder {
+
+    private long[] timestamps;
+    private float[] temperature;
+    private float[] humidity;
+    private int[] moisture;
+    private int[] rpm;
+    private int size;
+    private int[] runStarts = new int[8];
+    private int runs = 1;
+
+    SensorSeriesBuilder(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        timestamps = new long[capacity];
+        temperature = new float[capacity];
+        humidity = new float[capacity];
+        moisture = new int[capacity];
+        rpm = new int[capacity];
+    }
+
+    void add(long timestamp, float temp, float hum, int moist, int revs) {
+        if (size == timestamps.length) {
+            int capacity = size * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            temperature = Arrays.copyOf(temperature, capacity);
+            humidity = Arrays.copyOf(humidity, capacity);
+            moisture = Arrays.copyOf(moisture, capacity);
+            rpm = Arrays.copyOf(rpm, capacity);
+        }
+        if (size > 0 && timestamp < timestamps[size - 1]) {
+            if (runs == runStarts.length) {
+                runStarts = Arrays.copyOf(runStarts, runs * 2);
+            }
+            runStarts[runs++] = size;
+        }
+        timestamps[size] = timestamp;
+        temperature[size] = temp;
+        humidity[size] = hum;
+        moisture[size] = moist;
+        rpm[size] = revs;
+        size++;
+    }
+
+    SensorSeries build(String deviceId) {
+        if (runs == 1) {
+            return new SensorSeries(deviceId, Arrays.copyOf(timestamps, size), Arrays.copyOf(temperature, size),
+                    Arrays.copyOf(humidity, size), Arrays.copyOf(moisture, size), Arrays.copyOf(rpm, size));
+        }
+
+        int[] order = mergeRuns();
+
+        long[] ts = new long[size];
+        float[] temp = new float[size];
+        float[] hum = new float[size];
+        int[] moist = new int[size];
+        int[] revs = new int[size];
+        for (int i = 0; i < size; i++) {
+            int from = order[i];
+            ts[i] = timestamps[from];
+            temp[i] = temperature[from];
+            hum[i] = humidity[from];
+            moist[i] = moisture[from];
+            revs[i] = rpm[from];
+        }
+        return new SensorSeries(deviceId, ts, temp, hum, moist, revs);
+    }
+
+    // Bottom-up merge of the sorted runs, returning row indexes in timestamp order; ties keep insertion order
+    private int[] mergeRuns() {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        int[] merged = new int[size];
+        int[] bounds = Arrays.copyOf(runStarts, runs + 1);
+        bounds[runs] = size;
+        int count = runs;
+        while (count > 1) {
+            int next = 0;
+            for (int run = 0; run < count; run += 2) {
+                int low = bounds[run];
+                int middle = bounds[run + 1];
+                int high = run + 2 <= count ? bounds[run + 2] : middle;
+                int left = low;
+                int right = middle;
+                for (int out = low; out < high; out++) {
+                    if (right >= high || (left < middle && timestamps[order[left]] <= timestamps[order[right]])) {
+                        merged[out] = order[left++];
+                    } else {
+                        merged[out] = order[right++];
+                    }
+                }
+                bounds[next++] = low;
+            }
+            bounds[next] = size;
+            count = next;
+            int[] swap = order;
+            order = merged;
+            merged = swap;
+        }
+        return order;
+    }
+}
@@ -1,24 +1,124 @@
-//package com.cocopro.backend.service;
-//
-//import com.cocopro.backend.model.SensorData;
-//import org.springframework.stereotype.Service;
-//
-//import java.util.ArrayList;
-//import java.util.List;
-//
-//@Service
-//public class SensorService {
-//    private List<SensorData> sensorDataList = new ArrayList<>();
-//
-//    public void saveSensorData(SensorData sensorData) {
-//        System.out.println(sensorData.getHumidity());
-//        System.out.println(sensorData.getMoisture());
-//        System.out.println(sensorData.getTemperature());
-//
-//        sensorDataList.add(sensorData);
-//    }
-//
-//    public List<SensorData> getAllSensorData() {
-//        return sensorDataList;
-//    }
-//}
\ No newline at end of file
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.dto.SensorBatchResult;
+import com.cocopro.backend.model.SensorData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+public class SensorService {
+
+    private final SensorWriteBehindService writeBehindService;
+    private final SensorDeadbandFilter deadbandFilter;
+    private final DeviceSequenceService sequenceService;
+    private final SensorHistoryService historyService;
+    private final LatestSnapshotService snapshotService;
+    private final SensorArchiveService archiveService;
+    private final SensorRollupService rollupService;
+    private final SensorSketchService sketchService;
+    private final SensorStreamService streamService;
+    private final SensorRuleEngine ruleEngine;
+    private final DeviceLivenessService livenessService;
+    private final int maxBatchSize;
+    private final long maxClockSkewSeconds;
+
+    public SensorService(SensorWriteBehindService writeBehindService,
+                         SensorDeadbandFilter deadbandFilter,
+                         DeviceSequenceService sequenceService,
+                         SensorHistoryService historyService,
+                         LatestSnapshotService snapshotService,
+                         SensorArchiveService archiveService,
+                         SensorRollupService rollupService,
+                         SensorSketchService sketchService,
+                         SensorStreamService streamService,
+                         SensorRuleEngine ruleEngine,
+                         DeviceLivenessService livenessService,
+                         @Value("${sensor.ingest.max-batch-size:500}") int maxBatchSize,
+                         @Value("${sensor.ingest.max-clock-skew-seconds:300}") long maxClockSkewSeconds) {
+        this.writeBehindService = writeBehindService;
+        this.deadbandFilter = deadbandFilter;
+        this.sequenceService = sequenceService;
+        this.historyService = historyService;
+        this.snapshotService = snapshotService;
+        this.archiveService = archiveService;
+        this.rollupService = rollupService;
+        this.sketchService = sketchService;
+        this.streamService = streamService;
+        this.ruleEngine = ruleEngine;
+        this.livenessService = livenessService;
+        this.maxBatchSize = maxBatchSize;
+        this.maxClockSkewSeconds = maxClockSkewSeconds;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    // Returns null when the reading is valid, otherwise the reason it was rejected
+    public String validate(SensorData sensorData) {
+        if (sensorData == null) {
+            return "Missing sensor data";
+        }
+        if (sensorData.getTemperature() == 0 && sensorData.getHumidity() == 0) {
+            return "Invalid sensor data";
+        }
+        if (sensorData.getTimestamp() == null) {
+            return "Missing timestamp";
+        }
+        if (sensorData.getTimestamp().isAfter(LocalDateTime.now().plusSeconds(maxClockSkewSeconds))) {
+            return "Timestamp is in the future";
+        }
+        return null;
+    }
+
+    // Hands a validated reading to the write-behind queue unless it is a resend or repeats the last stored row; false means the queue is full
+    public boolean ingest(SensorData sensorData) {
+        sensorData.setId(null);
+        if (sensorData.getDeviceId() == null || sensorData.getDeviceId().isBlank()) {
+            sensorData.setDeviceId(SensorData.DEFAULT_DEVICE_ID);
+        }
+        String deviceId = sensorData.getDeviceId();
+        // Even a resend proves the device is alive
+        livenessService.touch(DeviceSequenceService.SENSOR, deviceId);
+        if (!sequenceService.claim(DeviceSequenceService.SENSOR, deviceId, sensorData.getBoot(), sensorData.getSeq())) {
+            return true; // a resend of a reading that was already accepted
+        }
+        if (deadbandFilter.isSignificant(sensorData)) {
+            if (!writeBehindService.offer(sensorData)) {
+                sequenceService.release(DeviceSequenceService.SENSOR, deviceId, sensorData.getBoot(), sensorData.getSeq());
+                return false;
+            }
+            deadbandFilter.stored(sensorData);
+        }
+        historyService.record(sensorData);
+        snapshotService.recordSensor(deviceId);
+        archiveService.record(sensorData);
+        rollupService.record(sensorData);
+        sketchService.record(sensorData);
+        streamService.publish(sensorData);
+        ruleEngine.evaluate(sensorData);
+        return true;
+    }
+
+    // Validates every reading and queues the accepted ones; the writer persists them in batches
+    public SensorBatchResult saveBatch(List<SensorData> readings) {
+        SensorBatchResult result = new SensorBatchResult();
+
+        for (int i = 0; i < readings.size(); i++) {
+            SensorData reading = readings.get(i);
+            String reason = validate(reading);
+            if (reason == null && !ingest(reading)) {
+                reason = "Sensor ingest queue is full";
+            }
+            if (reason != null) {
+                result.reject(i, reason);
+            } else {
+                result.accept(i);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,152 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.SensorData;
+import com.cocopro.backend.model.SensorSketch;
+import com.cocopro.backend.repository.SensorSketchRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps hourly temperature and moisture quantile sketches per device, next to the rollups.
+ * Readings are folded into in-memory partial sketches and merged into the sensor_sketches
+ * table by a background task; percentile queries merge the stored hours of the range (plus
+ * any not yet flushed) instead of reading raw sensor_data.
+ */
+@Service
+public class SensorSketchService {
+
+    private final SensorSketchRepository sensorSketchRepository;
+    private final long flushIntervalMs;
+    private final Map<SketchKey, HourSketch> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    public SensorSketchService(SensorSketchRepository sensorSketchRepository,
+                               @Value("${sensor.rollup.flush-interval-ms:10000}") long flushIntervalMs) {
+        this.sensorSketchRepository = sensorSketchRepository;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sensor-sketch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    public void record(SensorData reading) {
+        SketchKey key = new SketchKey(reading.getDeviceId(), hourOf(reading.getTimestamp()));
+        pending.compute(key, (k, partial) -> {
+            if (partial == null) {
+                partial = new HourSketch();
+            }
+            partial.temperature.add(reading.getTemperature());
+            partial.moisture.add(reading.getMoisture());
+            return partial;
+        });
+    }
+
+    // Requested quantiles of temperature and moisture over every hour touching [from, to]
+    public Map<String, Object> quantiles(String deviceId, LocalDateTime from, LocalDateTime to, double[] qs) {
+        HourSketch merged = new HourSketch();
+        LocalDateTime firstHour = hourOf(from);
+        for (SensorSketch row : sensorSketchRepository.findByDeviceIdAndBucketStartBetween(deviceId, firstHour, to)) {
+            merged.temperature.merge(row.getTemperatureSketch());
+            merged.moisture.merge(row.getMoistureSketch());
+        }
+        for (SketchKey key : pending.keySet()) {
+            if (!key.deviceId().equals(deviceId) || key.hour().isBefore(firstHour) || key.hour().isAfter(to)) {
+                continue;
+            }
+            pending.computeIfPresent(key, (k, partial) -> {
+                merged.temperature.merge(partial.temperature);
+                merged.moisture.merge(partial.moisture);
+                return partial;
+            });
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("deviceId", deviceId);
+        result.put("from", from);
+        result.put("to", to);
+        result.put("count", merged.temperature.getCount());
+        result.put("temperature", percentiles(merged.temperature, qs));
+        result.put("moisture", percentiles(merged.moisture, qs));
+        return result;
+    }
+
+    synchronized void flush() {
+        for (SketchKey key : pending.keySet()) {
+            HourSketch partial = pending.remove(key);
+            if (partial == null) {
+                continue;
+            }
+            try {
+                SensorSketch row = sensorSketchRepository.findByDeviceIdAndBucketStart(key.deviceId(), key.hour())
+                        .orElseGet(() -> new SensorSketch(key.deviceId(), key.hour()));
+                QuantileSketch temperature = QuantileSketch.fromBytes(QuantileSketch.Scale.TEMPERATURE, row.getTemperatureSketch());
+                QuantileSketch moisture = QuantileSketch.fromBytes(QuantileSketch.Scale.MOISTURE, row.getMoistureSketch());
+                temperature.merge(partial.temperature);
+                moisture.merge(partial.moisture);
+                row.setTemperatureSketch(temperature.toBytes());
+                row.setMoistureSketch(moisture.toBytes());
+                row.setCount(temperature.getCount());
+                sensorSketchRepository.save(row);
+            } catch (RuntimeException e) {
+                // Keep the partial so the next flush retries it together with newer readings
+                pending.merge(key, partial, (newer, failed) -> {
+                    newer.temperature.merge(failed.temperature);
+                    newer.moisture.merge(failed.moisture);
+                    return newer;
+                });
+                System.err.println("Failed to flush sensor sketch " + key + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static Map<String, Double> percentiles(QuantileSketch sketch, double[] qs) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (double q : qs) {
+            values.put("p" + formatQuantile(q), sketch.quantile(q));
+        }
+        return values;
+    }
+
+    // 0.5 -> "50", 0.999 -> "99.9"
+    private static String formatQuantile(double q) {
+        double percent = Math.round(q * 100_000) / 1000.0;
+        return percent == Math.rint(percent) ? String.valueOf((long) percent) : String.valueOf(percent);
+    }
+
+    private static LocalDateTime hourOf(LocalDateTime timestamp) {
+        return timestamp.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private record SketchKey(String deviceId, LocalDateTime hour) {
+    }
+
+    private static class HourSketch {
+        final QuantileSketch temperature = new QuantileSketch(QuantileSketch.Scale.TEMPERATURE);
+        final QuantileSketch moisture = new QuantileSketch(QuantileSketch.Scale.MOISTURE);
+    }
+}
@@ -0,0 +1,267 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.SensorData;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes accepted sensor readings to dashboards over Server-Sent Events. Each reading is
+ * serialized once and offered to every subscriber's bounded buffer; a sender pool drains
+ * those buffers, with at most one send in flight per subscriber (heartbeats included). The
+ * pool keeps a few threads and grows with the number of busy subscribers, so a subscriber
+ * whose socket stalls ties up only its own thread, and a subscriber whose send takes longer
+ * than the send timeout is evicted, as is one that falls a full buffer behind. Coalescing
+ * subscribers only receive the newest reading per device once per tick.
+ */
+@Service
+public class SensorStreamService {
+
+    private static final String EVENT_NAME = "reading";
+
+    private final ObjectMapper objectMapper;
+    private final int maxSubscribers;
+    private final int bufferSize;
+    private final long tickMs;
+    private final long heartbeatMs;
+    private final int senderThreads;
+    private final long sendTimeoutNanos;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final LongAdder evicted = new LongAdder();
+
+    private ExecutorService senders;
+    private ScheduledExecutorService ticker;
+
+    public SensorStreamService(ObjectMapper objectMapper,
+                               @Value("${sensor.stream.max-subscribers:500}") int maxSubscribers,
+                               @Value("${sensor.stream.buffer-size:64}") int bufferSize,
+                               @Value("${sensor.stream.tick-ms:1000}") long tickMs,
+                               @Value("${sensor.stream.heartbeat-ms:15000}") long heartbeatMs,
+                               @Value("${sensor.stream.sender-threads:4}") int senderThreads,
+                               @Value("${sensor.stream.send-timeout-ms:5000}") long sendTimeoutMs) {
+        this.objectMapper = objectMapper;
+        this.maxSubscribers = maxSubscribers;
+        this.bufferSize = bufferSize;
+        this.tickMs = tickMs;
+        this.heartbeatMs = heartbeatMs;
+        this.senderThreads = senderThreads;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        // One drain per subscriber at a time, plus evicted subscribers still stuck in a write
+        senders = new ThreadPoolExecutor(senderThreads, Math.max(senderThreads, 2 * maxSubscribers),
+                60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "sensor-stream-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sensor-stream-tick");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        ticker.scheduleAtFixedRate(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    // Returns null when the subscriber limit is reached
+    public SseEmitter subscribe(String deviceId, boolean coalesce) {
+        return register(new SseEmitter(0L), deviceId, coalesce);
+    }
+
+    SseEmitter register(SseEmitter emitter, String deviceId, boolean coalesce) {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        Subscriber subscriber = new Subscriber(emitter, deviceId, coalesce, bufferSize);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    public void publish(SensorData reading) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(reading);
+        } catch (JsonProcessingException e) {
+            System.err.println("Failed to serialize sensor reading for stream: " + e.getMessage());
+            return;
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.deviceId != null && !subscriber.deviceId.equals(reading.getDeviceId())) {
+                continue;
+            }
+            if (subscriber.coalesce) {
+                subscriber.latest.put(reading.getDeviceId(), payload);
+            } else if (subscriber.buffer.offer(payload)) {
+                scheduleDrain(subscriber);
+            } else {
+                evict(subscriber);
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getEvictedCount() {
+        return evicted.sum();
+    }
+
+    void tick() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long started = subscriber.sendStartedNanos;
+            if (started != 0 && now - started > sendTimeoutNanos) {
+                // Its socket stopped taking data; the thread is released once the write fails
+                evict(subscriber);
+            } else if (subscriber.coalesce && !subscriber.latest.isEmpty()) {
+                scheduleDrain(subscriber);
+            }
+        }
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeatDue = true;
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.draining.set(false);
+                evict(subscriber);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            do {
+                if (subscriber.heartbeatDue) {
+                    subscriber.heartbeatDue = false;
+                    send(subscriber, SseEmitter.event().comment("keep-alive"));
+                }
+                if (subscriber.coalesce) {
+                    for (String deviceId : subscriber.latest.keySet()) {
+                        String payload = subscriber.latest.remove(deviceId);
+                        if (payload != null) {
+                            send(subscriber, payload);
+                        }
+                    }
+                } else {
+                    String payload;
+                    while ((payload = subscriber.buffer.poll()) != null) {
+                        send(subscriber, payload);
+                    }
+                }
+                subscriber.draining.set(false);
+                // Coalescing subscribers wait for the next tick instead of re-draining immediately
+            } while (!subscriber.coalesce && hasPending(subscriber) && subscriber.draining.compareAndSet(false, true));
+        } catch (IOException | IllegalStateException e) {
+            subscriber.draining.set(false);
+            drop(subscriber);
+        }
+    }
+
+    private boolean hasPending(Subscriber subscriber) {
+        return subscriber.buffer.size() > 0 || subscriber.heartbeatDue;
+    }
+
+    private void send(Subscriber subscriber, String payload) throws IOException {
+        send(subscriber, SseEmitter.event().name(EVENT_NAME).data(payload, MediaType.APPLICATION_JSON));
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        if (!subscribers.contains(subscriber)) {
+            throw new IllegalStateException("Subscriber was evicted");
+        }
+        subscriber.sendStartedNanos = Math.max(1, System.nanoTime());
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            subscriber.sendStartedNanos = 0;
+        }
+    }
+
+    private void evict(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            evicted.increment();
+            System.out.println("Evicting slow sensor stream subscriber");
+            // complete() waits for a send in progress, so it must not run on the publishing or ticking thread
+            try {
+                senders.execute(subscriber.emitter::complete);
+            } catch (RejectedExecutionException e) {
+                // Shutting down or saturated; the failed write ends the response instead
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final String deviceId;
+        private final boolean coalesce;
+        private final RingBuffer<String> buffer;
+        private final Map<String, String> latest = new ConcurrentHashMap<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+        // When the send in progress started, 0 while idle
+        private volatile long sendStartedNanos;
+
+        Subscriber(SseEmitter emitter, String deviceId, boolean coalesce, int bufferSize) {
+            this.emitter = emitter;
+            this.deviceId = deviceId;
+            this.coalesce = coalesce;
+            this.buffer = coalesce ? null : new RingBuffer<>(bufferSize);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.SensorData;
+import com.cocopro.backend.repository.SensorDataRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decouples sensor ingest from MySQL. Request threads only offer readings to a bounded
+ * ring buffer; a single writer thread drains it and persists each batch with one
+ * multi-row insert, either when flushSize readings are waiting or flushInterval elapses.
+ * When the sensor journal is enabled it replaces the ring buffer: offers are appended to
+ * disk and the writer replays the journal, retrying a failed batch until MySQL is back.
+ * A batch that fails is retried reading by reading, so one row MySQL will never accept
+ * (constraint violation, value too long) is logged and skipped instead of blocking the rest.
+ */
+@Service
+public class SensorWriteBehindService {
+
+    private final SensorDataRepository sensorDataRepository;
+    private final SensorJournal journal;
+    private final RingBuffer<SensorData> buffer;
+    private final int flushSize;
+    private final long flushIntervalNanos;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    // Written only by the writer thread, read by the stats endpoint
+    private volatile long persisted;
+    private volatile long failed;
+    private volatile long deadLettered;
+    private volatile long flushes;
+    private volatile long lastFlushMillis;
+    private volatile long maxFlushMillis;
+    private volatile long totalFlushMillis;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public SensorWriteBehindService(SensorDataRepository sensorDataRepository,
+                                    SensorJournal journal,
+                                    @Value("${sensor.ingest.queue-capacity:8192}") int queueCapacity,
+                                    @Value("${sensor.ingest.flush-size:200}") int flushSize,
+                                    @Value("${sensor.ingest.flush-interval-ms:1000}") long flushIntervalMs) {
+        this.sensorDataRepository = sensorDataRepository;
+        this.journal = journal;
+        this.buffer = new RingBuffer<>(queueCapacity);
+        this.flushSize = flushSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = new Thread(journal.isEnabled() ? this::runJournalWriter : this::runWriter, "sensor-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writerThread);
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    // Returns false when the buffer (or journal) is full so the caller can shed load; with the journal it waits for the disk
+    public boolean offer(SensorData reading) {
+        boolean accepted = journal.isEnabled() ? journal.append(reading) : buffer.offer(reading);
+        if (!accepted) {
+            dropped.increment();
+            return false;
+        }
+        enqueued.increment();
+        if (queueDepth() >= flushSize) {
+            LockSupport.unpark(writerThread);
+        }
+        return true;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queueDepth());
+        stats.put("queueCapacity", journal.isEnabled() ? journal.capacity() : buffer.capacity());
+        stats.put("enqueued", enqueued.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("persisted", persisted);
+        stats.put("failed", failed);
+        stats.put("deadLettered", deadLettered);
+        stats.put("flushes", flushes);
+        stats.put("lastFlushMillis", lastFlushMillis);
+        stats.put("maxFlushMillis", maxFlushMillis);
+        stats.put("avgFlushMillis", flushes == 0 ? 0.0 : (double) totalFlushMillis / flushes);
+        stats.put("journal", journal.getStats());
+        return stats;
+    }
+
+    private long queueDepth() {
+        return journal.isEnabled() ? journal.pending() : buffer.size();
+    }
+
+    private void runWriter() {
+        List<SensorData> batch = new ArrayList<>(flushSize);
+        long lastFlush = System.nanoTime();
+
+        while (running || buffer.size() > 0) {
+            long waited = System.nanoTime() - lastFlush;
+            if (running && buffer.size() < flushSize && waited < flushIntervalNanos) {
+                LockSupport.parkNanos(this, flushIntervalNanos - waited);
+                continue;
+            }
+
+            while (buffer.drainTo(batch, flushSize) > 0) {
+                if (!flush(batch)) {
+                    flushSingly(batch);
+                }
+                batch.clear();
+                if (buffer.size() < flushSize) {
+                    break;
+                }
+            }
+            lastFlush = System.nanoTime();
+        }
+    }
+
+    // Batches stay in the journal until inserted, so a failed flush is retried after the next interval
+    private void runJournalWriter() {
+        List<SensorData> batch = new ArrayList<>(flushSize);
+        long lastFlush = System.nanoTime();
+
+        while (running) {
+            long waited = System.nanoTime() - lastFlush;
+            if (journal.pending() < flushSize && waited < flushIntervalNanos) {
+                LockSupport.parkNanos(this, flushIntervalNanos - waited);
+                continue;
+            }
+
+            while (running) {
+                SensorJournal.Cursor next = journal.read(batch, flushSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                boolean stored = flush(batch);
+                if (stored) {
+                    journal.commit(next, batch.size());
+                } else {
+                    stored = replaySingly(batch.size());
+                }
+                int size = batch.size();
+                batch.clear();
+                if (!stored || size < flushSize) {
+                    break;
+                }
+            }
+            lastFlush = System.nanoTime();
+        }
+    }
+
+    private boolean flush(List<SensorData> batch) {
+        long started = System.nanoTime();
+        boolean stored = true;
+        try {
+            sensorDataRepository.insertBatch(batch);
+            persisted += batch.size();
+        } catch (RuntimeException e) {
+            stored = false;
+            failed += batch.size();
+            System.err.println("Failed to persist " + batch.size() + " sensor readings: " + e.getMessage());
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        flushes++;
+        lastFlushMillis = elapsed;
+        totalFlushMillis += elapsed;
+        maxFlushMillis = Math.max(maxFlushMillis, elapsed);
+        return stored;
+    }
+
+    // Without the journal there is no retry; rows that can be stored still are
+    private void flushSingly(List<SensorData> batch) {
+        for (SensorData reading : batch) {
+            if (!storeOrDeadLetter(reading)) {
+                return;
+            }
+        }
+    }
+
+    // Replays up to count readings one at a time, committing each; false when MySQL itself is failing
+    private boolean replaySingly(int count) {
+        List<SensorData> single = new ArrayList<>(1);
+        for (int i = 0; i < count; i++) {
+            SensorJournal.Cursor next = journal.read(single, 1);
+            if (single.isEmpty()) {
+                return true;
+            }
+            if (!storeOrDeadLetter(single.get(0))) {
+                return false;
+            }
+            journal.commit(next, 1);
+            single.clear();
+        }
+        return true;
+    }
+
+    // True when the reading was stored or can never be stored; false on errors worth retrying
+    private boolean storeOrDeadLetter(SensorData reading) {
+        try {
+            sensorDataRepository.insertBatch(List.of(reading));
+            persisted++;
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            deadLettered++;
+            System.err.println("Dropping sensor reading MySQL rejects (device " + reading.getDeviceId() + ", "
+                    + reading.getTimestamp() + ", temperature " + reading.getTemperature() + ", humidity "
+                    + reading.getHumidity() + ", moisture " + reading.getMoisture() + ", rpm " + reading.getRpm()
+                    + "): " + e.getMostSpecificCause().getMessage());
+            return true;
+        } catch (RuntimeException e) {
+            failed++;
+            System.err.println("Failed to persist sensor reading, retrying later: " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.cocopro.backend.service;
+
+import java.util.Arrays;
+
+/**
+ * Sliding bitmap over the last SIZE sequence numbers of one device, in the style of an
+ * anti-replay window: one bit per sequence number, indexed modulo SIZE, so checking and
+ * marking a reading is O(1) and the window never grows. Moving the highest sequence forward
+ * clears the bits that slide out. A sequence number further behind than the window either
+ * means the device rebooted (no boot id, or a new one) or is a stale resend (same boot id).
+ */
+class SequenceWindow {
+
+    static final int SIZE = 1024;
+
+    private final long[] bits = new long[SIZE / Long.SIZE];
+    private long boot;
+    private long highest = -1;
+
+    // Returns true and marks the sequence number when it was not seen before
+    synchronized boolean mark(long bootId, long seq) {
+        if (highest < 0 || bootId != boot || (seq <= highest - SIZE && bootId == 0)) {
+            // First reading, new boot, or a counter restart on firmware that sends no boot id
+            clearAll();
+            boot = bootId;
+            highest = seq;
+            set(seq);
+            return true;
+        }
+        if (seq > highest) {
+            if (seq - highest >= SIZE) {
+                clearAll();
+            } else {
+                for (long s = highest + 1; s < seq; s++) {
+                    clear(s);
+                }
+            }
+            highest = seq;
+            set(seq);
+            return true;
+        }
+        if (seq <= highest - SIZE || isSet(seq)) {
+            return false;
+        }
+        set(seq);
+        return true;
+    }
+
+    // Forgets a mark so a reading that could not be stored is accepted again when resent
+    synchronized void unmark(long bootId, long seq) {
+        if (bootId == boot && seq <= highest && seq > highest - SIZE) {
+            clear(seq);
+        }
+    }
+
+    private boolean isSet(long seq) {
+        int index = (int) Math.floorMod(seq, (long) SIZE);
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void set(long seq) {
+        int index = (int) Math.floorMod(seq, (long) SIZE);
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private void clear(long seq) {
+        int index = (int) Math.floorMod(seq, (long) SIZE);
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    private void clearAll() {
+        Arrays.fill(bits, 0);
+    }
+}
@@ -1,55 +1,214 @@
-//package com.cocopro.backend.service;
-//
-//import com.cocopro.backend.model.SensorData;
-//import com.fazecast.jSerialComm.SerialPort;
-//import org.springframework.beans.factory.annotation.Autowired;
-//import org.springframework.stereotype.Service;
-//
-//import java.io.InputStream;
-//import java.util.Scanner;
-//
-//@Service
-//public class SerialCommunicationService {
-//
-//    @Autowired
-//    private SensorService sensorService;
-//
-//    // Method to start serial communication and read data from the Arduino
-//    public void startReadingSerialData() {
-//        // Replace with the correct COM port of your system
-//        SerialPort comPort = SerialPort.getCommPort("COM3"); // Update with your serial port
-//        comPort.setBaudRate(115200);
-//
-//        // Open the serial port
-//        if (comPort.openPort()) {
-//            System.out.println("Connected to Arduino!");
-//
-//            // Create input stream to read data from the serial port
-//            InputStream in = comPort.getInputStream();
-//            Scanner scanner = new Scanner(in);
-//
-//            // Continuously read data from the serial port
-//            while (scanner.hasNextLine()) {
-//                String sensorDataStr = scanner.nextLine();
-//                System.out.println("Received: " + sensorDataStr);
-//
-//                try {
-//                    // Parse the sensor value from the input string
-//                    Float sensorValue = Float.parseFloat(sensorDataStr.trim());
-//
-//                    // Create SensorData object and save it via the SensorService
-//                    SensorData sensorData = new SensorData(sensorValue);
-//                    sensorService.saveSensorData(sensorData);
-//                    System.out.println("Sensor data saved: " + sensorDataStr);
-//                } catch (NumberFormatException e) {
-//                    System.err.println("Invalid sensor data received: " + sensorDataStr);
-//                }
-//            }
-//
-//            scanner.close();
-//            comPort.closePort();
-//        } else {
-//            System.out.println("Failed to connect to Arduino.");
-//        }
-//    }
-//}
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.SensorData;
+import com.fazecast.jSerialComm.SerialPort;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads sensor readings from Arduinos attached over serial and feeds them into the same
+ * ingest path as HTTP (validation, write-behind batching, history). Ports are configured as
+ * sensor.serial.ports, a comma separated list of "deviceId=portName" or just "portName",
+ * e.g. "dryer-1=/dev/ttyUSB0,COM3". Each port gets its own reader thread that reconnects
+ * with exponential backoff when the port disappears.
+ *
+ * On Linux a loopback stand-in can be created with
+ * socat -d -d pty,raw,echo=0,link=/tmp/dryer pty,raw,echo=0,link=/tmp/dryer-feed
+ * then configuring sensor.serial.ports=/tmp/dryer and writing lines like "31.5,60,42" to /tmp/dryer-feed.
+ */
+@Service
+public class SerialCommunicationService {
+
+    private static final int MAX_LINE_LENGTH = 128;
+    private static final long MAX_RECONNECT_DELAY_MS = 30000;
+
+    private final SensorService sensorService;
+    private final String portsConfig;
+    private final int baudRate;
+    private final long reconnectDelayMs;
+    private final List<PortReader> readers = new ArrayList<>();
+
+    public SerialCommunicationService(SensorService sensorService,
+                                      @Value("${sensor.serial.ports:}") String portsConfig,
+                                      @Value("${sensor.serial.baud-rate:115200}") int baudRate,
+                                      @Value("${sensor.serial.reconnect-delay-ms:2000}") long reconnectDelayMs) {
+        this.sensorService = sensorService;
+        this.portsConfig = portsConfig;
+        this.baudRate = baudRate;
+        this.reconnectDelayMs = reconnectDelayMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        for (String entry : portsConfig.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            String portName = separator < 0 ? entry : entry.substring(separator + 1).trim();
+            String deviceId = separator < 0 ? defaultDeviceId(portName) : entry.substring(0, separator).trim();
+
+            PortReader reader = new PortReader(portName, deviceId);
+            Thread thread = new Thread(reader, "serial-" + deviceId);
+            thread.setDaemon(true);
+            reader.thread = thread;
+            readers.add(reader);
+            thread.start();
+            System.out.println("Reading sensor data for " + deviceId + " from serial port " + portName);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (PortReader reader : readers) {
+            reader.running = false;
+            reader.thread.interrupt();
+        }
+        for (PortReader reader : readers) {
+            reader.thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (PortReader reader : readers) {
+            Map<String, Object> port = new LinkedHashMap<>();
+            port.put("port", reader.portName);
+            port.put("connected", reader.connected);
+            port.put("lines", reader.lines);
+            port.put("accepted", reader.accepted);
+            port.put("rejected", reader.rejected);
+            port.put("reconnects", reader.reconnects);
+            stats.put(reader.deviceId, port);
+        }
+        return stats;
+    }
+
+    private static String defaultDeviceId(String portName) {
+        int slash = portName.lastIndexOf('/');
+        return slash < 0 ? portName : portName.substring(slash + 1);
+    }
+
+    private class PortReader implements Runnable {
+        private final String portName;
+        private final String deviceId;
+        private final byte[] readBuffer = new byte[256];
+        private final byte[] line = new byte[MAX_LINE_LENGTH];
+        private final SensorLineParser parser = new SensorLineParser();
+        private int lineLength;
+        private boolean overflow;
+        private Thread thread;
+
+        private volatile boolean running = true;
+        private volatile boolean connected;
+        private volatile long lines;
+        private volatile long accepted;
+        private volatile long rejected;
+        private volatile long reconnects;
+
+        PortReader(String portName, String deviceId) {
+            this.portName = portName;
+            this.deviceId = deviceId;
+        }
+
+        @Override
+        public void run() {
+            long delay = reconnectDelayMs;
+            while (running) {
+                SerialPort port = null;
+                try {
+                    // Throws SerialPortInvalidPortException while the device node does not exist (unplugged)
+                    port = SerialPort.getCommPort(portName);
+                    port.setBaudRate(baudRate);
+                    port.setComPortTimeouts(SerialPort.TIMEOUT_READ_SEMI_BLOCKING, 1000, 0);
+
+                    if (port.openPort()) {
+                        connected = true;
+                        delay = reconnectDelayMs;
+                        lineLength = 0;
+                        overflow = false;
+                        readUntilFailure(port);
+                    }
+                } catch (RuntimeException e) {
+                    System.err.println("Serial port " + portName + " failed: " + e.getMessage());
+                } finally {
+                    if (port != null && port.isOpen()) {
+                        port.closePort();
+                    }
+                    connected = false;
+                }
+                if (!running) {
+                    break;
+                }
+
+                reconnects++;
+                System.err.println("Serial port " + portName + " unavailable, retrying in " + delay + " ms");
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+            }
+        }
+
+        private void readUntilFailure(SerialPort port) {
+            while (running) {
+                int read = port.readBytes(readBuffer, readBuffer.length);
+                if (read < 0) {
+                    return;
+                }
+                for (int i = 0; i < read; i++) {
+                    byte b = readBuffer[i];
+                    if (b == '\n') {
+                        if (!overflow) {
+                            handleLine();
+                        }
+                        lineLength = 0;
+                        overflow = false;
+                    } else if (b != '\r') {
+                        if (lineLength < line.length) {
+                            line[lineLength++] = b;
+                        } else {
+                            overflow = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        private void handleLine() {
+            if (lineLength == 0) {
+                return;
+            }
+            lines++;
+            int fields = parser.parse(line, lineLength);
+            if (fields < 3) {
+                rejected++;
+                return;
+            }
+
+            SensorData reading = new SensorData();
+            reading.setDeviceId(deviceId);
+            reading.setTemperature(parser.field(0));
+            reading.setHumidity(parser.field(1));
+            reading.setMoisture(Math.round(parser.field(2)));
+            reading.setRpm(fields > 3 ? Math.round(parser.field(3)) : 0);
+
+            if (sensorService.validate(reading) == null && sensorService.ingest(reading)) {
+                accepted++;
+            } else {
+                rejected++;
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.cocopro.backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: three levels of 64 slots, each level's slot spanning a full
+ * turn of the level below (64, 4096 and 262144 ticks). Scheduling and cancelling are O(1)
+ * list operations; advancing a tick touches one level-0 slot, and once per turn cascades the
+ * next higher slot down. Deadlines beyond the top level wait in its farthest slot and are
+ * re-placed when it cascades. Not thread-safe; callers synchronize.
+ */
+class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 3;
+
+    static final class Timer<T> {
+        final T payload;
+        long deadlineTick;
+        Timer<T> prev;
+        Timer<T> next;
+        boolean scheduled;
+
+        Timer(T payload) {
+            this.payload = payload;
+        }
+    }
+
+    private final long tickMillis;
+    private final Timer<T>[][] slots;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        this.slots = new Timer[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timer<T> sentinel = new Timer<>(null);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                slots[level][slot] = sentinel;
+            }
+        }
+    }
+
+    // (Re)arms the timer to fire at the first tick at or after deadlineMillis
+    void schedule(Timer<T> timer, long deadlineMillis) {
+        if (timer.scheduled) {
+            unlink(timer);
+            size--;
+        }
+        timer.deadlineTick = Math.max(currentTick + 1, (deadlineMillis + tickMillis - 1) / tickMillis);
+        place(timer);
+        size++;
+    }
+
+    void cancel(Timer<T> timer) {
+        if (timer.scheduled) {
+            unlink(timer);
+            size--;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Moves time forward to nowMillis and returns the payloads whose timers fired, in deadline order
+    List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                long lowerBits = currentTick & ((1L << (SLOT_BITS * level)) - 1);
+                if (lowerBits == 0) {
+                    cascade(level, (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK));
+                }
+            }
+            Timer<T> sentinel = slots[0][(int) (currentTick & SLOT_MASK)];
+            while (sentinel.next != sentinel) {
+                Timer<T> timer = sentinel.next;
+                unlink(timer);
+                if (timer.deadlineTick <= currentTick) {
+                    size--;
+                    expired.add(timer.payload);
+                } else {
+                    place(timer);
+                }
+            }
+        }
+        return expired;
+    }
+
+    private void cascade(int level, int slot) {
+        Timer<T> sentinel = slots[level][slot];
+        Timer<T> timer = sentinel.next;
+        sentinel.prev = sentinel;
+        sentinel.next = sentinel;
+        while (timer != sentinel) {
+            Timer<T> next = timer.next;
+            timer.scheduled = false;
+            place(timer);
+            timer = next;
+        }
+    }
+
+    private void place(Timer<T> timer) {
+        long ticks = timer.deadlineTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && ticks >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot;
+        if (ticks >= 1L << (SLOT_BITS * LEVELS)) {
+            // Too far out: park in the top level's last slot before the current one
+            slot = (int) (((currentTick >>> (SLOT_BITS * level)) - 1) & SLOT_MASK);
+        } else {
+            slot = (int) ((timer.deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        }
+        Timer<T> sentinel = slots[level][slot];
+        timer.prev = sentinel.prev;
+        timer.next = sentinel;
+        sentinel.prev.next = timer;
+        sentinel.prev = timer;
+        timer.scheduled = true;
+    }
+
+    private void unlink(Timer<T> timer) {
+        timer.prev.next = timer.next;
+        timer.next.prev = timer.prev;
+        timer.prev = null;
+        timer.next = null;
+        timer.scheduled = false;
+    }
+}
@@ -0,0 +1,42 @@
+package com.cocopro.backend.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket kept as a single "theoretical arrival time" (the GCRA form of a
+ * token bucket): each admitted request pushes it one interval further, and a request is
+ * refused while it is more than the burst allowance ahead of now. No refill thread, one CAS
+ * per request, and the refusal says exactly how long to wait.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this.intervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.toleranceNanos = intervalNanos * Math.max(0, burst - 1);
+    }
+
+    // Returns 0 when admitted, otherwise the nanoseconds until a permit is available
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long base = Math.max(current, nowNanos);
+            long ahead = base - nowNanos;
+            if (ahead > toleranceNanos) {
+                return ahead - toleranceNanos;
+            }
+            if (theoreticalArrival.compareAndSet(current, base + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    // A bucket that has been full for a while carries no state worth keeping
+    public boolean isIdleSince(long nowNanos, long idleNanos) {
+        long current = theoreticalArrival.get();
+        return current == Long.MIN_VALUE || nowNanos - current > idleNanos;
+    }
+}
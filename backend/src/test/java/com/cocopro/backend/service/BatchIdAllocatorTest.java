@@ -0,0 +1,157 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.BatchCounter;
+import com.cocopro.backend.repository.BatchCounterRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchIdAllocatorTest {
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    @Test
+    void threadsRacingOverBlockRolloverNeverSkipOrRepeatNumbers() throws InterruptedException {
+        CounterRow row = new CounterRow(0);
+        BatchCounterRepository repository = row.repository();
+        BatchIdAllocator allocator = new BatchIdAllocator(repository, transactionManager, 5);
+
+        Set<Integer> numbers = allocate(List.of(allocator), 16, 1000);
+
+        // Only one thread reserves when a block runs dry, so a single instance uses every number it reserves
+        assertEquals(16_000, numbers.size());
+        for (int number = 1; number <= 16_000; number++) {
+            assertTrue(numbers.contains(number), "missing " + number);
+        }
+        verify(repository, times(3200)).advance(eq("BATCH_COUNTER"), eq(5));
+    }
+
+    @Test
+    void instancesSharingTheCounterGetDisjointBlocks() throws InterruptedException {
+        CounterRow row = new CounterRow(0);
+        List<BatchIdAllocator> instances = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            instances.add(new BatchIdAllocator(row.repository(), transactionManager, 7));
+        }
+
+        Set<Integer> numbers = allocate(instances, 12, 500);
+
+        assertEquals(6000, numbers.size());
+        assertTrue(numbers.stream().allMatch(number -> number >= 1 && number <= row.last));
+    }
+
+    @Test
+    void continuesAboveTheStoredCounterAfterARestart() {
+        CounterRow row = new CounterRow(140);
+        BatchIdAllocator allocator = new BatchIdAllocator(row.repository(), transactionManager, 20);
+
+        assertEquals("B141", allocator.nextBatchId());
+        assertEquals(142, allocator.nextBatchNumber());
+        assertEquals(160, row.last);
+    }
+
+    @Test
+    void createsTheCounterRowOnAnEmptyDatabase() {
+        CounterRow row = new CounterRow(null);
+        BatchCounterRepository repository = row.repository();
+        BatchIdAllocator allocator = new BatchIdAllocator(repository, transactionManager, 20);
+
+        assertEquals(1, allocator.nextBatchNumber());
+        verify(repository).saveAndFlush(any(BatchCounter.class));
+    }
+
+    @Test
+    void rowCreatedByAnotherInstanceIsUsedAsIs() {
+        CounterRow row = new CounterRow(null);
+        BatchCounterRepository repository = row.repository();
+        // The other instance wins the insert and has already reserved a block
+        when(repository.saveAndFlush(any(BatchCounter.class))).thenAnswer(invocation -> {
+            row.last = 20;
+            throw new DataIntegrityViolationException("Duplicate entry 'BATCH_COUNTER'");
+        });
+        BatchIdAllocator allocator = new BatchIdAllocator(repository, transactionManager, 20);
+
+        assertEquals(21, allocator.nextBatchNumber());
+    }
+
+    private static Set<Integer> allocate(List<BatchIdAllocator> instances, int threads, int perThread)
+            throws InterruptedException {
+        Set<Integer> numbers = ConcurrentHashMap.newKeySet();
+        AtomicBoolean repeated = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            BatchIdAllocator allocator = instances.get(t % instances.size());
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    if (!numbers.add(allocator.nextBatchNumber())) {
+                        repeated.set(true);
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertFalse(repeated.get(), "a batch number was handed out twice");
+        return numbers;
+    }
+
+    // The BATCH_COUNTER row: the UPDATE is atomic and each transaction reads back its own increment
+    private static final class CounterRow {
+        private volatile Integer last;
+        private final ThreadLocal<Integer> readBack = new ThreadLocal<>();
+
+        CounterRow(Integer last) {
+            this.last = last;
+        }
+
+        BatchCounterRepository repository() {
+            BatchCounterRepository repository = mock(BatchCounterRepository.class);
+            when(repository.advance(eq("BATCH_COUNTER"), anyInt())).thenAnswer(invocation -> {
+                synchronized (this) {
+                    if (last == null) {
+                        return 0;
+                    }
+                    last = last + (int) invocation.getArgument(1);
+                    readBack.set(last);
+                    return 1;
+                }
+            });
+            when(repository.findLastBatchNumber("BATCH_COUNTER")).thenAnswer(invocation -> readBack.get());
+            when(repository.saveAndFlush(any(BatchCounter.class))).thenAnswer(invocation -> {
+                synchronized (this) {
+                    last = 0;
+                }
+                return invocation.getArgument(0);
+            });
+            return repository;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.dto.ColorClassifierConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ColorClassifierTest {
+
+    private static final String DEFAULT_RULE = "BLACK:red=201-255,green=201-255,blue=201-255,spread=51-255";
+
+    @Test
+    void defaultTableMatchesTheOriginalRule() {
+        ColorClassifier classifier = new ColorClassifier(DEFAULT_RULE, "NOT_BLACK", new float[]{1, 1, 1}, new float[]{0, 0, 0});
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // Half the samples near the boundary, where the rule is easiest to get wrong
+            int low = i % 2 == 0 ? 0 : 195;
+            int red = low + random.nextInt(256 - low);
+            int green = low + random.nextInt(256 - low);
+            int blue = low + random.nextInt(256 - low);
+            int spread = Math.max(red, Math.max(green, blue)) - Math.min(red, Math.min(green, blue));
+            boolean black = red > 200 && green > 200 && blue > 200 && spread > 50;
+            assertEquals(black ? "BLACK" : "NOT_BLACK", classifier.classify(red, green, blue),
+                    "rgb " + red + "," + green + "," + blue);
+        }
+        assertEquals("BLACK", classifier.classify(201, 252, 230));
+        assertEquals("NOT_BLACK", classifier.classify(201, 251, 230));
+        assertEquals("NOT_BLACK", classifier.classify(200, 255, 230));
+    }
+
+    @Test
+    void firstMatchingRuleWinsAndOutOfRangeInputIsClamped() {
+        ColorClassifier classifier = new ColorClassifier("DARK:red=0-50,green=0-50,blue=0-50;LOW_RED:red=0-100",
+                "OTHER", new float[]{1, 1, 1}, new float[]{0, 0, 0});
+
+        assertEquals("DARK", classifier.classify(10, 10, 10));
+        assertEquals("LOW_RED", classifier.classify(10, 200, 10));
+        assertEquals("OTHER", classifier.classify(101, 0, 0));
+        assertEquals("DARK", classifier.classify(-20, 0, 0));
+        assertEquals("OTHER", classifier.classify(300, 0, 0));
+    }
+
+    @Test
+    void calibrationIsAppliedBeforeTheRules() {
+        // A sensor reading red 20 low and blue at twice its true value
+        ColorClassifier classifier = new ColorClassifier("RED:red=150-255,blue=0-60", "OTHER",
+                new float[]{1, 1, 0.5f}, new float[]{20, 0, 0});
+
+        assertEquals("RED", classifier.classify(130, 0, 120));
+        assertEquals("OTHER", classifier.classify(129, 0, 120));
+        assertEquals("OTHER", classifier.classify(130, 0, 122));
+    }
+
+    @Test
+    void updateSwapsTheTableAndRejectsInvalidConfigs() {
+        ColorClassifier classifier = new ColorClassifier(DEFAULT_RULE, "NOT_BLACK", new float[]{1, 1, 1}, new float[]{0, 0, 0});
+        ColorClassifierConfig original = classifier.getConfig();
+
+        ColorClassifierConfig duplicate = new ColorClassifierConfig(
+                ColorClassifier.parseRules("A:red=0-10;A:red=20-30"), "OTHER", new float[]{1, 1, 1}, new float[]{0, 0, 0});
+        assertThrows(IllegalArgumentException.class, () -> classifier.update(duplicate));
+        ColorClassifierConfig badRange = new ColorClassifierConfig(
+                ColorClassifier.parseRules("A:red=30-10"), "OTHER", new float[]{1, 1, 1}, new float[]{0, 0, 0});
+        assertThrows(IllegalArgumentException.class, () -> classifier.update(badRange));
+        ColorClassifierConfig badGain = new ColorClassifierConfig(List.of(), "OTHER", new float[]{1, 1}, new float[]{0, 0, 0});
+        assertThrows(IllegalArgumentException.class, () -> classifier.update(badGain));
+        assertSame(original, classifier.getConfig());
+
+        classifier.update(new ColorClassifierConfig(ColorClassifier.parseRules("BROWN:red=90-160"), "OTHER",
+                new float[]{1, 1, 1}, new float[]{0, 0, 0}));
+        assertEquals("BROWN", classifier.classify(120, 255, 255));
+        assertEquals("OTHER", classifier.classify(220, 250, 230));
+    }
+
+    @Test
+    void parseRulesReadsBoundsAndRejectsMalformedOnes() {
+        List<ColorClassifierConfig.ColorClassRule> rules = ColorClassifier.parseRules("BLACK:red=201-255,spread=51-255; BROWN");
+        assertEquals(2, rules.size());
+        assertEquals("BLACK", rules.get(0).getName());
+        assertEquals(201, rules.get(0).getRed()[0]);
+        assertEquals(51, rules.get(0).getSpread()[0]);
+        assertEquals(0, rules.get(0).getGreen()[0]);
+        assertEquals(255, rules.get(1).getBlue()[1]);
+
+        assertThrows(IllegalArgumentException.class, () -> ColorClassifier.parseRules("A:red=10"));
+        assertThrows(IllegalArgumentException.class, () -> ColorClassifier.parseRules("A:alpha=0-10"));
+    }
+}
@@ -0,0 +1,142 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.ColorData;
+import com.cocopro.backend.model.ColorTransition;
+import com.cocopro.backend.repository.ColorTransitionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ColorStateProcessorTest {
+
+    private final ColorTransitionRepository repository = mock(ColorTransitionRepository.class);
+    private final LocalDateTime start = LocalDateTime.now();
+    private int sampleCount;
+
+    @Test
+    void stateNeedsAStrictMajorityOfTheWindow() {
+        ColorStateProcessor processor = new ColorStateProcessor(repository, 4, 60_000);
+
+        // Two of four is a tie, not a majority, even for the first state
+        assertFalse(processor.process(sample("brown")));
+        assertFalse(processor.process(sample("brown")));
+        assertNull(processor.getStates().get("dryer-1"));
+        assertTrue(processor.process(sample("brown")));
+        assertEquals("brown", processor.getStates().get("dryer-1"));
+
+        processor.process(sample("brown"));
+        assertFalse(processor.process(sample("black")));
+        assertFalse(processor.process(sample("black")));
+        assertEquals("brown", processor.getStates().get("dryer-1"));
+        assertTrue(processor.process(sample("black")));
+        assertEquals("black", processor.getStates().get("dryer-1"));
+    }
+
+    @Test
+    void singleNoisySamplesDoNotFlipTheState() {
+        ColorStateProcessor processor = new ColorStateProcessor(repository, 5, 60_000);
+        for (int i = 0; i < 3; i++) {
+            processor.process(sample("brown"));
+        }
+        // One sample in three is never more than two of any five
+        for (int i = 0; i < 20; i++) {
+            assertFalse(processor.process(sample(i % 3 == 0 ? "black" : "brown")));
+        }
+        assertEquals("brown", processor.getStates().get("dryer-1"));
+    }
+
+    @Test
+    void transitionRecordsThePreviousStateAndItsLength() {
+        List<ColorTransition> stored = new ArrayList<>();
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            stored.addAll(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        ColorStateProcessor processor = new ColorStateProcessor(repository, 3, 60_000);
+        for (int i = 0; i < 6; i++) {
+            processor.process(sample("brown"));
+        }
+        processor.process(sample("black"));
+        processor.process(sample("black"));
+        processor.flush();
+
+        assertEquals(2, stored.size());
+        assertNull(stored.get(0).getFromClass());
+        assertEquals("brown", stored.get(1).getFromClass());
+        assertEquals("black", stored.get(1).getToClass());
+        // Brown held from the second sample on: five brown samples plus the black one that did not yet tip the vote
+        assertEquals(6, stored.get(1).getPreviousSamples());
+    }
+
+    @Test
+    void transitionsMySqlRejectsAreDroppedAndTheRestStored() {
+        List<ColorTransition> stored = new ArrayList<>();
+        when(repository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("Data too long"));
+        when(repository.save(any(ColorTransition.class))).thenAnswer(invocation -> {
+            ColorTransition transition = invocation.getArgument(0);
+            if (transition.getToClass().length() > 8) {
+                throw new DataIntegrityViolationException("Data too long for column 'to_class'");
+            }
+            stored.add(transition);
+            return transition;
+        });
+        ColorStateProcessor processor = new ColorStateProcessor(repository, 1, 60_000);
+        processor.process(sample("brown"));
+        processor.process(sample("unclassified"));
+        processor.process(sample("black"));
+
+        processor.flush();
+        assertEquals(List.of("brown", "black"), stored.stream().map(ColorTransition::getToClass).toList());
+        assertEquals(1L, processor.getStats().get("deadLettered"));
+        assertEquals(0, processor.getStats().get("pendingTransitions"));
+
+        // Nothing is left to retry
+        processor.flush();
+        assertEquals(2, stored.size());
+    }
+
+    @Test
+    void transitionsAreRetriedInOrderWhileMySqlIsUnavailable() {
+        List<ColorTransition> stored = new ArrayList<>();
+        when(repository.saveAll(anyList())).thenThrow(new QueryTimeoutException("Lock wait timeout"));
+        when(repository.save(any(ColorTransition.class))).thenThrow(new QueryTimeoutException("Lock wait timeout"));
+        ColorStateProcessor processor = new ColorStateProcessor(repository, 1, 60_000);
+        processor.process(sample("brown"));
+        processor.process(sample("black"));
+
+        processor.flush();
+        assertEquals(2, processor.getStats().get("pendingTransitions"));
+        assertEquals(0L, processor.getStats().get("deadLettered"));
+
+        processor.process(sample("brown"));
+        doAnswer(invocation -> {
+            stored.addAll(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        }).when(repository).saveAll(anyList());
+        processor.flush();
+        assertEquals(List.of("brown", "black", "brown"), stored.stream().map(ColorTransition::getToClass).toList());
+        assertEquals(0, processor.getStats().get("pendingTransitions"));
+    }
+
+    private ColorData sample(String colorClass) {
+        ColorData sample = new ColorData();
+        sample.setDeviceId("dryer-1");
+        sample.setColorClass(colorClass);
+        sample.setTimestamp(start.plusSeconds(sampleCount++));
+        return sample;
+    }
+}
@@ -0,0 +1,83 @@
+package com.cocopro.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedSensorBlockTest {
+
+    private static final int COUNT = 500;
+
+    private final long[] timestamps = new long[COUNT];
+    private final float[] temperature = new float[COUNT];
+    private final float[] humidity = new float[COUNT];
+    private final int[] moisture = new int[COUNT];
+    private final int[] rpm = new int[COUNT];
+
+    CompressedSensorBlockTest() {
+        Random random = new Random(42);
+        long timestamp = 1_700_000_000_000L;
+        for (int i = 0; i < COUNT; i++) {
+            // Mostly regular intervals with jitter, repeated and changing values, a few extremes
+            timestamp += i % 50 == 0 ? random.nextInt(60_000) : 1000 + random.nextInt(5) - 2;
+            timestamps[i] = timestamp;
+            temperature[i] = i % 97 == 0 ? Float.NaN : 30 + random.nextInt(100) / 10f;
+            humidity[i] = i % 3 == 0 ? 55.5f : -40f + random.nextFloat() * 140;
+            moisture[i] = i % 10 == 0 ? Integer.MIN_VALUE : random.nextInt(101);
+            rpm[i] = i % 5 == 0 ? 0 : random.nextInt(3000);
+        }
+    }
+
+    @Test
+    void decodesExactlyWhatWasEncoded() {
+        CompressedSensorBlock block = CompressedSensorBlock.encode(timestamps, temperature, humidity, moisture, rpm, COUNT);
+        assertEquals(COUNT, block.size());
+        assertEquals(timestamps[0], block.getMinTimestamp());
+        assertEquals(timestamps[COUNT - 1], block.getMaxTimestamp());
+        assertTrue(block.sizeInBytes() < COUNT * 24L);
+
+        SensorSeriesBuilder builder = new SensorSeriesBuilder(COUNT);
+        block.decode(Long.MIN_VALUE, Long.MAX_VALUE, builder);
+        SensorSeries series = builder.build("dryer-1");
+        assertEquals(COUNT, series.size());
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals(timestamps[i], series.getTimestamp(i));
+            assertEquals(Float.floatToRawIntBits(temperature[i]), Float.floatToRawIntBits(series.getTemperature(i)));
+            assertEquals(Float.floatToRawIntBits(humidity[i]), Float.floatToRawIntBits(series.getHumidity(i)));
+            assertEquals(moisture[i], series.getMoisture(i));
+            assertEquals(rpm[i], series.getRpm(i));
+        }
+    }
+
+    @Test
+    void decodesOnlyTheRequestedRange() {
+        CompressedSensorBlock block = CompressedSensorBlock.encode(timestamps, temperature, humidity, moisture, rpm, COUNT);
+        long from = timestamps[100];
+        long to = timestamps[199];
+        assertTrue(block.overlaps(from, to));
+        assertFalse(block.overlaps(timestamps[COUNT - 1] + 1, Long.MAX_VALUE));
+
+        SensorSeriesBuilder builder = new SensorSeriesBuilder(COUNT);
+        block.decode(from, to, builder);
+        SensorSeries series = builder.build("dryer-1");
+        assertEquals(100, series.size());
+        assertEquals(from, series.getTimestamp(0));
+        assertEquals(to, series.getTimestamp(99));
+        assertEquals(rpm[150], series.getRpm(50));
+    }
+
+    @Test
+    void roundTripsASingleReading() {
+        CompressedSensorBlock block = CompressedSensorBlock.encode(timestamps, temperature, humidity, moisture, rpm, 1);
+        SensorSeriesBuilder builder = new SensorSeriesBuilder(1);
+        block.decode(Long.MIN_VALUE, Long.MAX_VALUE, builder);
+        SensorSeries series = builder.build("dryer-1");
+        assertEquals(1, series.size());
+        assertEquals(timestamps[0], series.getTimestamp(0));
+        assertEquals(moisture[0], series.getMoisture(0));
+    }
+}
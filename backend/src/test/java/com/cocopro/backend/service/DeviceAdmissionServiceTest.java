@@ -0,0 +1,55 @@
+package com.cocopro.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeviceAdmissionServiceTest {
+
+    @Test
+    void eachDeviceHasItsOwnBudget() {
+        DeviceAdmissionService service = new DeviceAdmissionService(true, 0.1, 2, 1000, 1000, 16);
+
+        assertEquals(0, service.admit("dryer-1"));
+        assertEquals(0, service.admit("dryer-1"));
+        long wait = service.admit("dryer-1");
+        // At 0.1 per second the next permit is up to ten seconds away
+        assertTrue(wait > 9_000_000_000L && wait <= 10_000_000_000L, "wait was " + wait);
+
+        assertEquals(0, service.admit("dryer-2"));
+        assertEquals(1L, service.getStats().get("deviceLimited"));
+        assertEquals(2, service.getStats().get("trackedDevices"));
+    }
+
+    @Test
+    void aDeviceOverItsLimitDoesNotDrainTheSharedBudget() {
+        DeviceAdmissionService service = new DeviceAdmissionService(true, 0.1, 1, 0.1, 2, 16);
+
+        assertEquals(0, service.admit("dryer-1"));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(service.admit("dryer-1") > 0);
+        }
+        assertEquals(0, service.admit("dryer-2"));
+        assertTrue(service.admit("dryer-3") > 0);
+
+        assertEquals(5L, service.getStats().get("deviceLimited"));
+        assertEquals(1L, service.getStats().get("globalLimited"));
+    }
+
+    @Test
+    void bulkheadCapsRequestsInFlight() {
+        DeviceAdmissionService service = new DeviceAdmissionService(true, 100, 100, 100, 100, 2);
+
+        assertTrue(service.enter());
+        assertTrue(service.enter());
+        assertFalse(service.enter());
+        assertEquals(2, service.getStats().get("inFlight"));
+
+        service.exit();
+        assertTrue(service.enter());
+        assertEquals(3L, service.getStats().get("admitted"));
+        assertEquals(1L, service.getStats().get("busy"));
+    }
+}
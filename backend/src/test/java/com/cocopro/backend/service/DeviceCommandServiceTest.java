@@ -0,0 +1,88 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.DeviceCommand;
+import com.cocopro.backend.repository.DeviceCommandRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeviceCommandServiceTest {
+
+    private final DeviceCommandRepository repository = mock(DeviceCommandRepository.class);
+    private DeviceCommandService service;
+
+    @BeforeEach
+    void start() {
+        when(repository.findMaxId()).thenReturn(41L);
+        when(repository.save(any(DeviceCommand.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        service = new DeviceCommandService(repository);
+        service.start();
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        service.stop();
+    }
+
+    @Test
+    void idsContinueFromTheHighestStoredId() {
+        assertEquals(42L, service.issue("dryer-1", DeviceCommand.START).getId());
+        assertEquals(43L, service.issue("dryer-2", DeviceCommand.STOP).getId());
+    }
+
+    @Test
+    void aWaitingPollIsCompletedByTheNextCommand() {
+        DeferredResult<ResponseEntity<List<DeviceCommand>>> poll = service.poll("dryer-1", 5000);
+        assertFalse(poll.hasResult());
+
+        service.issue("dryer-2", DeviceCommand.START);
+        assertFalse(poll.hasResult());
+        DeviceCommand stop = service.issue("dryer-1", DeviceCommand.EMERGENCY_STOP);
+
+        ResponseEntity<?> response = (ResponseEntity<?>) poll.getResult();
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(stop), response.getBody());
+        assertNotNull(stop.getDeliveredAt());
+    }
+
+    @Test
+    void pendingCommandsAreHandedOverOnce() {
+        DeviceCommand start = service.issue("dryer-1", DeviceCommand.START);
+        DeviceCommand stop = service.issue("dryer-1", DeviceCommand.STOP);
+
+        assertEquals(List.of(start, stop), service.takePending("dryer-1"));
+        assertTrue(service.takePending("dryer-1").isEmpty());
+        assertTrue(service.takePending("unknown").isEmpty());
+
+        // Nothing left, so a poll waits
+        assertFalse(service.poll("dryer-1", 5000).hasResult());
+    }
+
+    @Test
+    void acknowledgingStoresTheCommandAgain() {
+        DeviceCommand command = service.issue("dryer-1", DeviceCommand.STOP);
+        service.takePending("dryer-1");
+        assertEquals(command, service.acknowledge(command.getId()));
+        assertNotNull(command.getAcknowledgedAt());
+        // Issue and acknowledge are both written, in that order, by the writer thread
+        verify(repository, timeout(2000).times(2)).save(command);
+
+        assertEquals(1L, service.getStats().get("acknowledged"));
+        assertEquals(0, service.getStats().get("outstanding"));
+    }
+}
@@ -0,0 +1,147 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.DeviceControl;
+import com.cocopro.backend.repository.DeviceControlRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeviceControlRegistryTest {
+
+    private final DeviceControlRepository repository = mock(DeviceControlRepository.class);
+    private DeviceControlRegistry registry;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        registry.stop();
+    }
+
+    @Test
+    void transitionsBumpTheVersionPerDevice() {
+        start(List.of());
+
+        DeviceControlRegistry.State initial = registry.get("dryer-1");
+        assertFalse(initial.collecting());
+        assertTrue(initial.motorIROn());
+        assertEquals(0, initial.version());
+
+        assertEquals(new DeviceControlRegistry.State(true, true, 1), registry.start("dryer-1"));
+        assertEquals(new DeviceControlRegistry.State(true, false, 2), registry.emergencyStop("dryer-1"));
+        // Stopping keeps Motor/IR off; starting again re-arms it
+        assertEquals(new DeviceControlRegistry.State(false, false, 3), registry.stop("dryer-1"));
+        assertEquals(new DeviceControlRegistry.State(true, true, 4), registry.start("dryer-1"));
+
+        assertEquals(0, registry.get("dryer-2").version());
+    }
+
+    @Test
+    void stateIsRestoredFromTheDatabase() {
+        start(List.of(new DeviceControl("dryer-1", true, false, 7)));
+
+        assertEquals(new DeviceControlRegistry.State(true, false, 7), registry.get("dryer-1"));
+        assertEquals(new DeviceControlRegistry.State(false, false, 8), registry.stop("dryer-1"));
+    }
+
+    @Test
+    void concurrentTransitionsGetDistinctVersions() throws InterruptedException {
+        start(List.of());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 800; i++) {
+            boolean starting = i % 2 == 0;
+            executor.execute(() -> {
+                if (starting) {
+                    registry.start("dryer-1");
+                } else {
+                    registry.stop("dryer-1");
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(800, registry.get("dryer-1").version());
+    }
+
+    @Test
+    void newDevicesAreInsertedAndExistingRowsUpdated() {
+        start(List.of());
+        when(repository.updateIfNewer(eq("dryer-1"), anyBoolean(), anyBoolean(), anyLong(), any())).thenReturn(0);
+        when(repository.updateIfNewer(eq("dryer-2"), anyBoolean(), anyBoolean(), anyLong(), any())).thenReturn(1);
+
+        registry.start("dryer-1");
+        registry.start("dryer-2");
+
+        verify(repository, timeout(2000)).saveAndFlush(any(DeviceControl.class));
+        verify(repository, timeout(2000)).updateIfNewer(eq("dryer-2"), eq(true), eq(true), eq(1L), any());
+        verify(repository, never()).saveAndFlush(argThat(control -> control != null && "dryer-2".equals(control.getDeviceId())));
+    }
+
+    @Test
+    void insertRaceFallsBackToAVersionedUpdate() {
+        start(List.of());
+        when(repository.updateIfNewer(anyString(), anyBoolean(), anyBoolean(), anyLong(), any())).thenReturn(0);
+        when(repository.saveAndFlush(any(DeviceControl.class))).thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+
+        registry.start("dryer-1");
+
+        verify(repository, timeout(2000).times(2)).updateIfNewer(eq("dryer-1"), eq(true), eq(true), eq(1L), any());
+    }
+
+    @Test
+    void failedWritesAreRetriedWithTheNewestState() throws InterruptedException {
+        AtomicInteger failures = new AtomicInteger(3);
+        List<Long> stored = new CopyOnWriteArrayList<>();
+        when(repository.updateIfNewer(anyString(), anyBoolean(), anyBoolean(), anyLong(), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> {
+                    if (failures.getAndDecrement() > 0) {
+                        throw new QueryTimeoutException("Lock wait timeout");
+                    }
+                    stored.add(invocation.getArgument(3));
+                    return 1;
+                });
+        start(List.of());
+
+        registry.start("dryer-1");
+        registry.emergencyStop("dryer-1");
+        registry.stop("dryer-1");
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!stored.contains(3L) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // A failed state is kept only until a newer one replaces it, so stored versions only go up
+        for (int i = 1; i < stored.size(); i++) {
+            assertTrue(stored.get(i) > stored.get(i - 1), "stored " + stored);
+        }
+        assertEquals(3L, stored.get(stored.size() - 1));
+    }
+
+    private void start(List<DeviceControl> stored) {
+        when(repository.findAll()).thenReturn(stored);
+        registry = new DeviceControlRegistry(repository, 50);
+        registry.load();
+    }
+}
@@ -0,0 +1,51 @@
+package com.cocopro.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeviceSequenceServiceTest {
+
+    private final DeviceSequenceService service = new DeviceSequenceService();
+
+    @Test
+    void interleavedBootsOnOneDeviceKeepTheirOwnMarks() {
+        assertTrue(service.claim(DeviceSequenceService.SENSOR, "dryer-1", 111L, 1L));
+        assertTrue(service.claim(DeviceSequenceService.SENSOR, "dryer-1", 222L, 1L));
+        assertFalse(service.claim(DeviceSequenceService.SENSOR, "dryer-1", 111L, 1L));
+        assertFalse(service.claim(DeviceSequenceService.SENSOR, "dryer-1", 222L, 1L));
+        assertTrue(service.claim(DeviceSequenceService.SENSOR, "dryer-1", 111L, 2L));
+        assertTrue(service.claim(DeviceSequenceService.SENSOR, "dryer-1", 222L, 2L));
+        assertFalse(service.claim(DeviceSequenceService.SENSOR, "dryer-1", 111L, 2L));
+        assertEquals(3L, service.getStats().get("duplicates"));
+    }
+
+    @Test
+    void devicesAndStreamsAreSeparate() {
+        assertTrue(service.claim(DeviceSequenceService.SENSOR, "dryer-1", 1L, 5L));
+        assertTrue(service.claim(DeviceSequenceService.SENSOR, "dryer-2", 1L, 5L));
+        assertTrue(service.claim(DeviceSequenceService.COLOR, "dryer-1", 1L, 5L));
+        assertFalse(service.claim(DeviceSequenceService.SENSOR, "dryer-2", 1L, 5L));
+    }
+
+    @Test
+    void releasedPostsAndPostsWithoutSeqAreAccepted() {
+        assertTrue(service.claim(DeviceSequenceService.SENSOR, "dryer-1", 7L, 3L));
+        service.release(DeviceSequenceService.SENSOR, "dryer-1", 7L, 3L);
+        assertTrue(service.claim(DeviceSequenceService.SENSOR, "dryer-1", 7L, 3L));
+        assertTrue(service.claim(DeviceSequenceService.SENSOR, "dryer-1", 7L, null));
+        assertTrue(service.claim(DeviceSequenceService.SENSOR, "dryer-1", 7L, null));
+    }
+
+    @Test
+    void onlyTheMostRecentBootsAreRemembered() {
+        for (long boot = 1; boot <= 5; boot++) {
+            assertTrue(service.claim(DeviceSequenceService.SENSOR, "dryer-1", boot, 1L));
+        }
+        // Boot 1 was the least recently used of five and its window is gone
+        assertTrue(service.claim(DeviceSequenceService.SENSOR, "dryer-1", 1L, 1L));
+        assertFalse(service.claim(DeviceSequenceService.SENSOR, "dryer-1", 5L, 1L));
+    }
+}
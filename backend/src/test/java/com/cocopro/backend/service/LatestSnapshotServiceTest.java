@@ -0,0 +1,145 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.ColorData;
+import com.cocopro.backend.model.ColorTransition;
+import com.cocopro.backend.model.SensorData;
+import com.cocopro.backend.repository.ColorDataRepository;
+import com.cocopro.backend.repository.ColorTransitionRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LatestSnapshotServiceTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final SensorHistoryService historyService = mock(SensorHistoryService.class);
+    private final ColorDataRepository colorDataRepository = mock(ColorDataRepository.class);
+    private final ColorTransitionRepository colorTransitionRepository = mock(ColorTransitionRepository.class);
+    private final LocalDateTime now = LocalDateTime.of(2025, 3, 23, 12, 0);
+
+    @Test
+    void aLateColorSampleNeverReplacesANewerOne() throws IOException {
+        LatestSnapshotService service = service(false);
+
+        service.recordColor(color(now, 200));
+        service.recordColor(color(now.minusSeconds(30), 10));
+        assertEquals(200, read(service.color("dryer-1")).get("red").asInt());
+
+        service.recordColor(color(now.plusSeconds(5), 90));
+        assertEquals(90, read(service.color("dryer-1")).get("red").asInt());
+    }
+
+    @Test
+    void aLateSensorReadingNeverReplacesANewerOne() throws IOException {
+        LatestSnapshotService service = service(false);
+        when(historyService.latest("dryer-1")).thenReturn(sensor(now, 41.5f), sensor(now.minusMinutes(1), 20f));
+
+        service.recordSensor("dryer-1");
+        service.recordSensor("dryer-1");
+
+        assertEquals(41.5, read(service.sensor("dryer-1")).get("temperature").asDouble(), 0.001);
+    }
+
+    @Test
+    void concurrentOffersKeepTheNewestReading() throws InterruptedException, IOException {
+        LatestSnapshotService service = service(false);
+        List<Integer> seconds = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            seconds.add(i);
+        }
+        Collections.shuffle(seconds, new Random(3));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int second : seconds) {
+            executor.execute(() -> service.recordColor(color(now.plusSeconds(second), second % 256)));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1999 % 256, read(service.color("dryer-1")).get("red").asInt());
+    }
+
+    @Test
+    void devicesNotSeenSinceStartupAreLoadedOnce() throws IOException {
+        LatestSnapshotService service = service(false);
+        when(historyService.latest("dryer-1")).thenReturn(sensor(now, 33f));
+
+        assertEquals(33, read(service.sensor("dryer-1")).get("temperature").asDouble(), 0.001);
+        service.sensor("dryer-1");
+        verify(historyService, times(1)).latest("dryer-1");
+
+        assertNull(service.sensor("dryer-2"));
+        assertNull(service.color("dryer-2"));
+    }
+
+    @Test
+    void colorFallsBackToTheLatestTransitionOrANewerStoredSample() throws IOException {
+        ColorTransition transition = new ColorTransition("dryer-1", now, "NOT_BLACK", "BLACK", 12, 230, 250, 205);
+        when(colorTransitionRepository.findTopByDeviceIdOrderByTimestampDesc("dryer-1")).thenReturn(transition);
+        when(colorDataRepository.findTopByDeviceIdOrderByTimestampDesc("dryer-1")).thenReturn(color(now.plusSeconds(2), 17));
+
+        JsonNode fromTransition = read(service(false).color("dryer-1"));
+        assertEquals(230, fromTransition.get("red").asInt());
+        assertEquals("BLACK", fromTransition.get("colorClass").asText());
+
+        assertEquals(17, read(service(true).color("dryer-1")).get("red").asInt());
+    }
+
+    @Test
+    void postNumberingIsNotPartOfTheSnapshot() throws IOException {
+        LatestSnapshotService service = service(false);
+        ColorData sample = color(now, 1);
+        sample.setSeq(42L);
+        sample.setBoot(7L);
+        service.recordColor(sample);
+
+        JsonNode latest = read(service.color("dryer-1"));
+        assertFalse(latest.has("seq"));
+        assertFalse(latest.has("boot"));
+    }
+
+    private LatestSnapshotService service(boolean storeColorSamples) {
+        return new LatestSnapshotService(objectMapper, historyService, colorDataRepository, colorTransitionRepository,
+                storeColorSamples);
+    }
+
+    private JsonNode read(byte[] json) throws IOException {
+        return objectMapper.readTree(json);
+    }
+
+    private static ColorData color(LocalDateTime timestamp, int red) {
+        ColorData sample = new ColorData();
+        sample.setDeviceId("dryer-1");
+        sample.setTimestamp(timestamp);
+        sample.setRed(red);
+        return sample;
+    }
+
+    private static SensorData sensor(LocalDateTime timestamp, float temperature) {
+        SensorData reading = new SensorData();
+        reading.setDeviceId("dryer-1");
+        reading.setTimestamp(timestamp);
+        reading.setTemperature(temperature);
+        return reading;
+    }
+}
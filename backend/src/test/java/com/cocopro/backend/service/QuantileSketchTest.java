@@ -0,0 +1,88 @@
+package com.cocopro.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class QuantileSketchTest {
+
+    @Test
+    void quantilesAreExactAtTheSensorResolution() {
+        QuantileSketch sketch = new QuantileSketch(QuantileSketch.Scale.TEMPERATURE);
+        assertNull(sketch.quantile(0.5));
+        for (int i = 1; i <= 100; i++) {
+            sketch.add(20 + i / 10.0);
+        }
+        sketch.add(Double.NaN);
+        assertEquals(100, sketch.getCount());
+        assertEquals(20.1, sketch.quantile(0));
+        assertEquals(25.0, sketch.quantile(0.5));
+        assertEquals(29.9, sketch.quantile(0.99));
+        assertEquals(30.0, sketch.quantile(1));
+    }
+
+    @Test
+    void clampsValuesOutsideTheScale() {
+        QuantileSketch sketch = new QuantileSketch(QuantileSketch.Scale.MOISTURE);
+        sketch.add(-5);
+        sketch.add(250);
+        assertEquals(0.0, sketch.quantile(0));
+        assertEquals(100.0, sketch.quantile(1));
+    }
+
+    @Test
+    void serializedSketchRoundTrips() {
+        QuantileSketch sketch = new QuantileSketch(QuantileSketch.Scale.TEMPERATURE);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add(-40 + (i * 7919 % 1651) / 10.0);
+        }
+        sketch.add(125);
+        sketch.add(125);
+
+        QuantileSketch copy = QuantileSketch.fromBytes(QuantileSketch.Scale.TEMPERATURE, sketch.toBytes());
+        assertEquals(sketch.getCount(), copy.getCount());
+        assertArrayEquals(sketch.histogram(1651), copy.histogram(1651));
+        assertArrayEquals(sketch.toBytes(), copy.toBytes());
+        assertEquals(0, QuantileSketch.fromBytes(QuantileSketch.Scale.MOISTURE, new QuantileSketch(QuantileSketch.Scale.MOISTURE).toBytes()).getCount());
+    }
+
+    @Test
+    void mergingAddsCounts() {
+        QuantileSketch first = new QuantileSketch(QuantileSketch.Scale.MOISTURE);
+        QuantileSketch second = new QuantileSketch(QuantileSketch.Scale.MOISTURE);
+        for (int i = 0; i < 50; i++) {
+            first.add(i);
+            second.add(50 + i);
+        }
+        QuantileSketch viaObject = new QuantileSketch(QuantileSketch.Scale.MOISTURE);
+        viaObject.merge(first);
+        viaObject.merge(second);
+        QuantileSketch viaBytes = new QuantileSketch(QuantileSketch.Scale.MOISTURE);
+        viaBytes.merge(first.toBytes());
+        viaBytes.merge(second.toBytes());
+        viaBytes.merge((byte[]) null);
+
+        assertEquals(100, viaObject.getCount());
+        assertArrayEquals(viaObject.toBytes(), viaBytes.toBytes());
+        assertEquals(49.0, viaObject.quantile(0.5));
+        assertThrows(IllegalArgumentException.class,
+                () -> viaObject.merge(new QuantileSketch(QuantileSketch.Scale.TEMPERATURE)));
+    }
+
+    @Test
+    void histogramFoldsBucketsIntoBins() {
+        QuantileSketch sketch = new QuantileSketch(QuantileSketch.Scale.COLOR_CHANNEL);
+        sketch.add(0);
+        sketch.add(15);
+        sketch.add(16);
+        sketch.add(255);
+        long[] histogram = sketch.histogram(16);
+        assertEquals(16, histogram.length);
+        assertEquals(2, histogram[0]);
+        assertEquals(1, histogram[1]);
+        assertEquals(1, histogram[15]);
+    }
+}
@@ -0,0 +1,67 @@
+package com.cocopro.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SensorArchiveTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    void rangeIsOrderedWhenLateReadingsMakeBlocksOverlap() {
+        SensorArchive archive = new SensorArchive("dryer-1", 4, 24 * HOUR);
+        // The second block holds readings older than most of the first one
+        long[] arrivals = {100, 200, 300, 400, 150, 250, 350, 500, 50, 450, 600};
+        for (long timestamp : arrivals) {
+            archive.append(timestamp, timestamp / 10f, 50f, (int) timestamp, 0);
+        }
+        assertEquals(2, archive.blocks().size());
+
+        SensorSeries series = archive.range(0, 1000);
+        assertEquals(arrivals.length, series.size());
+        for (int i = 1; i < series.size(); i++) {
+            assertTrue(series.getTimestamp(i - 1) <= series.getTimestamp(i), "out of order at " + i);
+        }
+        for (int i = 0; i < series.size(); i++) {
+            assertEquals((int) series.getTimestamp(i), series.getMoisture(i));
+        }
+    }
+
+    @Test
+    void rangeSkipsReadingsOutsideTheWindow() {
+        SensorArchive archive = new SensorArchive("dryer-1", 4, 24 * HOUR);
+        for (long timestamp = 0; timestamp < 10; timestamp++) {
+            archive.append(timestamp * 100, 30f, 50f, 10, 0);
+        }
+
+        SensorSeries series = archive.range(250, 650);
+        assertEquals(4, series.size());
+        assertEquals(300, series.getTimestamp(0));
+        assertEquals(600, series.getTimestamp(3));
+    }
+
+    @Test
+    void rangeNeverMissesReadingsBeingSealedConcurrently() throws InterruptedException {
+        SensorArchive archive = new SensorArchive("dryer-1", 8, 24 * HOUR);
+        int total = 100_000;
+        AtomicInteger appended = new AtomicInteger();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < total; i++) {
+                archive.append(i, 30f, 50f, 10, 0);
+                appended.incrementAndGet();
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            int before = appended.get();
+            int seen = archive.range(0, Long.MAX_VALUE).size();
+            assertTrue(seen >= before, "saw " + seen + " of at least " + before + " readings");
+        }
+        writer.join();
+        assertEquals(total, archive.range(0, Long.MAX_VALUE).size());
+    }
+}
@@ -0,0 +1,112 @@
+package com.cocopro.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SensorDownsamplerTest {
+
+    @Test
+    void everyPickComesFromItsOwnBucket() {
+        Random random = new Random(7);
+        for (int size = 3; size <= 300; size += 7) {
+            SensorSeries series = randomSeries(size, random);
+            for (int threshold = 3; threshold < size; threshold++) {
+                int[] picked = SensorDownsampler.lttb(series, series::getMoisture, threshold);
+                assertEquals(threshold, picked.length);
+                assertEquals(0, picked[0]);
+                assertEquals(size - 1, picked[threshold - 1]);
+
+                double every = (double) (size - 2) / (threshold - 2);
+                for (int bucket = 0; bucket < threshold - 2; bucket++) {
+                    int index = picked[bucket + 1];
+                    int start = (int) (bucket * every) + 1;
+                    int end = (int) ((bucket + 1) * every) + 1;
+                    assertTrue(index >= start && index < end && index < size - 1,
+                            "size " + size + ", threshold " + threshold + ", bucket " + bucket + " picked " + index);
+                    assertTrue(index > picked[bucket], "picks must ascend");
+                }
+            }
+        }
+    }
+
+    @Test
+    void keepsSpikesAndDips() {
+        int size = 1000;
+        int[] moisture = new int[size];
+        Arrays.fill(moisture, 50);
+        moisture[123] = 95;
+        moisture[777] = 3;
+        SensorSeries series = series(size, new float[size], new float[size], moisture);
+
+        SensorSeries sampled = SensorDownsampler.moisture(series, 20);
+        assertEquals(20, sampled.size());
+        assertTrue(contains(sampled, series.getTimestamp(123)));
+        assertTrue(contains(sampled, series.getTimestamp(777)));
+        assertEquals(series.getTimestamp(0), sampled.getTimestamp(0));
+        assertEquals(series.getTimestamp(size - 1), sampled.getTimestamp(sampled.size() - 1));
+    }
+
+    @Test
+    void shortSeriesAndTinyBudgetsAreReturnedUnchanged() {
+        SensorSeries series = randomSeries(50, new Random(1));
+        assertSame(series, SensorDownsampler.moisture(series, 50));
+        assertSame(series, SensorDownsampler.moisture(series, 2));
+        assertSame(series, SensorDownsampler.environment(series, 5));
+        assertEquals(50, SensorDownsampler.lttb(series, series::getMoisture, 80).length);
+    }
+
+    @Test
+    void environmentKeepsTheSpikesOfBothChannelsInOrder() {
+        int size = 2000;
+        float[] temperature = new float[size];
+        float[] humidity = new float[size];
+        Arrays.fill(temperature, 30);
+        Arrays.fill(humidity, 60);
+        temperature[400] = 80;
+        humidity[1500] = 5;
+        SensorSeries series = series(size, temperature, humidity, new int[size]);
+
+        SensorSeries sampled = SensorDownsampler.environment(series, 40);
+        assertTrue(sampled.size() <= 40);
+        assertTrue(contains(sampled, series.getTimestamp(400)));
+        assertTrue(contains(sampled, series.getTimestamp(1500)));
+        for (int i = 1; i < sampled.size(); i++) {
+            assertTrue(sampled.getTimestamp(i) > sampled.getTimestamp(i - 1), "union must be sorted without repeats");
+        }
+    }
+
+    private static boolean contains(SensorSeries series, long timestamp) {
+        for (int i = 0; i < series.size(); i++) {
+            if (series.getTimestamp(i) == timestamp) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static SensorSeries randomSeries(int size, Random random) {
+        float[] temperature = new float[size];
+        float[] humidity = new float[size];
+        int[] moisture = new int[size];
+        for (int i = 0; i < size; i++) {
+            temperature[i] = 30 + random.nextFloat() * 10;
+            humidity[i] = 50 + random.nextFloat() * 20;
+            moisture[i] = random.nextInt(100);
+        }
+        return series(size, temperature, humidity, moisture);
+    }
+
+    private static SensorSeries series(int size, float[] temperature, float[] humidity, int[] moisture) {
+        long[] timestamps = new long[size];
+        for (int i = 0; i < size; i++) {
+            timestamps[i] = 1_700_000_000_000L + i * 5000L;
+        }
+        return new SensorSeries("dryer-1", timestamps, temperature, humidity, moisture, new int[size]);
+    }
+}
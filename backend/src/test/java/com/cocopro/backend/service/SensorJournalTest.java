@@ -0,0 +1,196 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.SensorData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SensorJournalTest {
+
+    private static final int SEGMENT_SIZE = 1024 * 1024;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int FIXED_PAYLOAD_SIZE = 24;
+    // Long ids keep the number of records per 1 MB segment small
+    private static final String DEVICE_ID = "dryer-" + "x".repeat(194);
+    private static final int RECORD_SIZE = RECORD_HEADER_SIZE + FIXED_PAYLOAD_SIZE + DEVICE_ID.length();
+    private static final int PER_SEGMENT = (SEGMENT_SIZE - HEADER_SIZE) / RECORD_SIZE;
+    private static final LocalDateTime START = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+    @TempDir
+    Path directory;
+
+    private SensorJournal journal;
+
+    @AfterEach
+    void closeJournal() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void readsBackWhatWasAppended() {
+        journal = open(4);
+        assertTrue(journal.append(reading(1, 31.5f)));
+        assertTrue(journal.append(reading(2, 32.5f)));
+
+        List<SensorData> out = new ArrayList<>();
+        SensorJournal.Cursor cursor = journal.read(out, 10);
+        assertEquals(2, out.size());
+        assertEquals(DEVICE_ID, out.get(0).getDeviceId());
+        assertEquals(START.plusSeconds(1), out.get(0).getTimestamp());
+        assertEquals(31.5f, out.get(0).getTemperature());
+        assertEquals(60f, out.get(0).getHumidity());
+        assertEquals(1, out.get(0).getMoisture());
+        assertEquals(32.5f, out.get(1).getTemperature());
+
+        journal.commit(cursor, out.size());
+        assertEquals(0, journal.pending());
+        out.clear();
+        journal.read(out, 10);
+        assertTrue(out.isEmpty());
+    }
+
+    @Test
+    void replaysFromTheCheckpointAfterRestart() {
+        journal = open(4);
+        for (int i = 0; i < 5; i++) {
+            journal.append(reading(i, 30f));
+        }
+        List<SensorData> out = new ArrayList<>();
+        journal.commit(journal.read(out, 2), out.size());
+        journal.close();
+
+        journal = open(4);
+        assertEquals(3, journal.pending());
+        out.clear();
+        journal.read(out, 10);
+        assertEquals(List.of(2, 3, 4), moistures(out));
+    }
+
+    @Test
+    void tornWriteEndsTheBacklog() throws IOException {
+        journal = open(4);
+        for (int i = 0; i < 3; i++) {
+            journal.append(reading(i, 30f));
+        }
+        journal.close();
+        corrupt(0, HEADER_SIZE + 2 * RECORD_SIZE + RECORD_HEADER_SIZE + 5);
+
+        journal = open(4);
+        assertEquals(2, journal.pending());
+        journal.append(reading(7, 30f));
+        List<SensorData> out = new ArrayList<>();
+        journal.read(out, 10);
+        assertEquals(List.of(0, 1, 7), moistures(out));
+    }
+
+    @Test
+    void recyclesCommittedSegmentsAndRefusesWhenFull() {
+        journal = open(2);
+        int accepted = 0;
+        while (journal.append(reading(accepted, 30f))) {
+            accepted++;
+        }
+        assertEquals(2 * PER_SEGMENT, accepted);
+
+        List<SensorData> out = new ArrayList<>();
+        journal.commit(journal.read(out, PER_SEGMENT + 1), out.size());
+        assertEquals(PER_SEGMENT - 1, journal.pending());
+        // The first segment is fully replayed and takes new readings again
+        for (int i = 0; i < PER_SEGMENT; i++) {
+            assertTrue(journal.append(reading(i, 40f)));
+        }
+        assertFalse(journal.append(reading(0, 40f)));
+
+        out.clear();
+        journal.read(out, 2 * PER_SEGMENT);
+        assertEquals(2 * PER_SEGMENT - 1, out.size());
+        assertEquals(30f, out.get(0).getTemperature());
+        assertEquals(40f, out.get(out.size() - 1).getTemperature());
+    }
+
+    @Test
+    void segmentsPastATornWriteDoNotComeBack() throws IOException {
+        journal = open(4);
+        for (int i = 0; i < PER_SEGMENT + 3; i++) {
+            journal.append(reading(i, 30f));
+        }
+        journal.close();
+        // Lose the last record of the first segment while the second one holds three more
+        corrupt(0, HEADER_SIZE + (PER_SEGMENT - 1) * RECORD_SIZE + RECORD_HEADER_SIZE + 5);
+
+        journal = open(4);
+        assertEquals(PER_SEGMENT - 1, journal.pending());
+        journal.close();
+
+        // Once the torn record is overwritten, a second recovery must not walk on into the dropped segment
+        journal = open(4);
+        assertEquals(PER_SEGMENT - 1, journal.pending());
+        journal.append(reading(-1, 99f));
+        journal.close();
+        journal = open(4);
+        assertEquals(PER_SEGMENT, journal.pending());
+
+        // Nor may its old records turn valid when its slot is reused for the next segment
+        journal.append(reading(-2, 99f));
+        journal.close();
+        journal = open(4);
+        assertEquals(PER_SEGMENT + 1, journal.pending());
+        List<SensorData> out = new ArrayList<>();
+        journal.read(out, 2 * PER_SEGMENT);
+        assertEquals(PER_SEGMENT + 1, out.size());
+        assertEquals(List.of(-1, -2), moistures(out.subList(PER_SEGMENT - 1, PER_SEGMENT + 1)));
+    }
+
+    private SensorJournal open(int maxSegments) {
+        SensorJournal opened = new SensorJournal(true, directory.toString(), SEGMENT_SIZE / (1024 * 1024), maxSegments);
+        opened.open();
+        assertTrue(opened.isEnabled());
+        return opened;
+    }
+
+    private void corrupt(int slot, int position) throws IOException {
+        Path path = directory.resolve(String.format("segment-%02d.dat", slot));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, position);
+            b.put(0, (byte) ~b.get(0));
+            b.rewind();
+            channel.write(b, position);
+        }
+    }
+
+    private static SensorData reading(int moisture, float temperature) {
+        SensorData reading = new SensorData();
+        reading.setDeviceId(DEVICE_ID);
+        reading.setTimestamp(START.plusSeconds(moisture));
+        reading.setTemperature(temperature);
+        reading.setHumidity(60f);
+        reading.setMoisture(moisture);
+        return reading;
+    }
+
+    private static List<Integer> moistures(List<SensorData> readings) {
+        List<Integer> moistures = new ArrayList<>();
+        for (SensorData reading : readings) {
+            moistures.add(reading.getMoisture());
+        }
+        return moistures;
+    }
+}
@@ -0,0 +1,89 @@
+package com.cocopro.backend.service;
+
+import com.cocopro.backend.model.SensorData;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SensorStreamServiceTest {
+
+    private static final long SEND_TIMEOUT_MS = 200;
+
+    private final CountDownLatch unstall = new CountDownLatch(1);
+    // Ticks and heartbeats are driven by the test
+    private final SensorStreamService service = new SensorStreamService(JsonMapper.builder().findAndAddModules().build(),
+            10, 64, 60_000, 60_000, 2, SEND_TIMEOUT_MS);
+
+    @AfterEach
+    void stop() {
+        unstall.countDown();
+        service.stop();
+    }
+
+    @Test
+    void stalledSubscribersDoNotHoldUpTheOthersAndAreEvicted() throws InterruptedException {
+        service.start();
+        for (int i = 0; i < 4; i++) {
+            service.register(new StalledEmitter(), null, false);
+        }
+        CountingEmitter healthy = new CountingEmitter();
+        service.register(healthy, null, false);
+
+        service.publish(reading());
+        // More stalled subscribers than core sender threads, yet the healthy one is served
+        assertTrue(healthy.received.await(2, TimeUnit.SECONDS));
+
+        Thread.sleep(SEND_TIMEOUT_MS + 100);
+        service.tick();
+        assertEquals(1, service.getSubscriberCount());
+        assertEquals(4, service.getEvictedCount());
+    }
+
+    @Test
+    void subscribersThatFallAFullBufferBehindAreEvicted() {
+        service.start();
+        service.register(new StalledEmitter(), null, false);
+        // The first reading is taken by the stalled send, the next 64 fill the buffer
+        for (int i = 0; i < 70; i++) {
+            service.publish(reading());
+        }
+        assertEquals(0, service.getSubscriberCount());
+        assertEquals(1, service.getEvictedCount());
+    }
+
+    private static SensorData reading() {
+        SensorData reading = new SensorData();
+        reading.setTemperature(31.5f);
+        reading.setHumidity(60f);
+        return reading;
+    }
+
+    private class StalledEmitter extends SseEmitter {
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                unstall.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("Broken pipe");
+        }
+    }
+
+    private static class CountingEmitter extends SseEmitter {
+        private final CountDownLatch received = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            received.countDown();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.cocopro.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SequenceWindowTest {
+
+    @Test
+    void rejectsDuplicatesButAcceptsOutOfOrderReadings() {
+        SequenceWindow window = new SequenceWindow();
+        assertTrue(window.mark(7, 10));
+        assertTrue(window.mark(7, 12));
+        assertTrue(window.mark(7, 11));
+        assertFalse(window.mark(7, 11));
+        assertFalse(window.mark(7, 12));
+    }
+
+    @Test
+    void forgetsSequencesThatSlideOutOfTheWindow() {
+        SequenceWindow window = new SequenceWindow();
+        assertTrue(window.mark(7, 0));
+        assertTrue(window.mark(7, SequenceWindow.SIZE));
+        // Behind the window on the same boot: a stale resend
+        assertFalse(window.mark(7, 0));
+        // The bit for SIZE + 1 shares a slot with 1, which must have been cleared when the window moved
+        assertTrue(window.mark(7, SequenceWindow.SIZE + 1));
+        assertTrue(window.mark(7, 3 * SequenceWindow.SIZE));
+        assertFalse(window.mark(7, 3 * SequenceWindow.SIZE));
+    }
+
+    @Test
+    void aNewBootStartsOver() {
+        SequenceWindow window = new SequenceWindow();
+        assertTrue(window.mark(7, 500));
+        assertTrue(window.mark(8, 1));
+        assertFalse(window.mark(8, 1));
+        // Without a boot id a counter far behind the window is taken as a restart
+        assertTrue(window.mark(0, 5000));
+        assertTrue(window.mark(0, 3));
+        assertFalse(window.mark(0, 3));
+    }
+
+    @Test
+    void unmarkedSequencesAreAcceptedAgain() {
+        SequenceWindow window = new SequenceWindow();
+        assertTrue(window.mark(7, 40));
+        window.unmark(7, 40);
+        assertTrue(window.mark(7, 40));
+        // Unmarking for another boot leaves the mark alone
+        window.unmark(9, 40);
+        assertFalse(window.mark(7, 40));
+    }
+}
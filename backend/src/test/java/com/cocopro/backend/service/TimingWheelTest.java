@@ -0,0 +1,65 @@
+package com.cocopro.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    private static final long TICK = 10;
+
+    @Test
+    void firesAtTheDeadlineAndNotBefore() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+        TimingWheel.Timer<String> timer = new TimingWheel.Timer<>("a");
+        wheel.schedule(timer, 55);
+        assertTrue(wheel.advance(50).isEmpty());
+        assertEquals(List.of("a"), wheel.advance(60));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void firesTimersOnEveryLevelInDeadlineOrder() {
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 1000);
+        // Deadlines in level 0, level 1, level 2 and beyond the top level
+        long[] deadlines = {1500, 40_000, 2_000_000, 5_000_000, 1_000_000};
+        for (long deadline : deadlines) {
+            wheel.schedule(new TimingWheel.Timer<>(deadline), deadline);
+        }
+        assertEquals(5, wheel.size());
+
+        assertEquals(List.of(1500L), wheel.advance(39_990));
+        assertEquals(List.of(40_000L), wheel.advance(40_000));
+        assertEquals(List.of(1_000_000L), wheel.advance(1_999_990));
+        assertEquals(List.of(2_000_000L), wheel.advance(4_999_990));
+        assertEquals(List.of(5_000_000L), wheel.advance(5_000_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void reschedulingAndCancellingReplaceTheOldDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+        TimingWheel.Timer<String> moved = new TimingWheel.Timer<>("moved");
+        TimingWheel.Timer<String> cancelled = new TimingWheel.Timer<>("cancelled");
+        wheel.schedule(moved, 100);
+        wheel.schedule(cancelled, 100);
+        wheel.schedule(moved, 5000);
+        wheel.cancel(cancelled);
+        wheel.cancel(cancelled);
+        assertEquals(1, wheel.size());
+
+        assertTrue(wheel.advance(4990).isEmpty());
+        assertEquals(List.of("moved"), wheel.advance(5000));
+    }
+
+    @Test
+    void deadlinesInThePastFireOnTheNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 1000);
+        wheel.schedule(new TimingWheel.Timer<>("late"), 0);
+        assertTrue(wheel.advance(1000).isEmpty());
+        assertEquals(List.of("late"), wheel.advance(1010));
+    }
+}
@@ -0,0 +1,83 @@
+package com.cocopro.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void admitsABurstThenRefusesWithTheExactWait() {
+        TokenBucket bucket = new TokenBucket(2, 10);
+        long now = 5 * SECOND;
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, bucket.tryAcquire(now));
+        }
+        assertEquals(SECOND / 2, bucket.tryAcquire(now));
+        // Refusals do not push the next permit further out
+        assertEquals(SECOND / 2, bucket.tryAcquire(now));
+
+        assertEquals(SECOND / 4, bucket.tryAcquire(now + SECOND / 4));
+        assertEquals(0, bucket.tryAcquire(now + SECOND / 2));
+        assertTrue(bucket.tryAcquire(now + SECOND / 2) > 0);
+    }
+
+    @Test
+    void sustainsTheConfiguredRate() {
+        TokenBucket bucket = new TokenBucket(2, 1);
+        int admitted = 0;
+        // Ten seconds of requests every 100 ms
+        for (long now = SECOND; now < 11 * SECOND; now += SECOND / 10) {
+            if (bucket.tryAcquire(now) == 0) {
+                admitted++;
+            }
+        }
+        assertEquals(20, admitted);
+    }
+
+    @Test
+    void idleOnceTheBurstHasRefilled() {
+        TokenBucket bucket = new TokenBucket(1, 5);
+        assertTrue(bucket.isIdleSince(0, SECOND));
+        bucket.tryAcquire(10 * SECOND);
+        assertFalse(bucket.isIdleSince(10 * SECOND, SECOND));
+        assertTrue(bucket.isIdleSince(13 * SECOND, SECOND));
+    }
+
+    @Test
+    void concurrentCallersNeverExceedTheBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1, 50);
+        long now = System.nanoTime();
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1000; i++) {
+                    if (bucket.tryAcquire(now) == 0) {
+                        admitted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(50, admitted.get());
+    }
+}
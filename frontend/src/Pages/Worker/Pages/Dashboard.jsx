@@ -194,8 +194,8 @@ const Dashboard = () => {
 
   const fetchHistoricalData = async () => {
     try {
-      const moistureResponse = await axios.get("http://localhost:8080/api/sensor-data/moisture");
-      const environmentResponse = await axios.get("http://localhost:8080/api/sensor-data/environment");
+      const moistureResponse = await axios.get("http://localhost:8080/api/sensor-data/moisture?points=300");
+      const environmentResponse = await axios.get("http://localhost:8080/api/sensor-data/environment?points=300");
 
       // Format moisture data for the chart
       const formattedMoistureData = moistureResponse.data.map((item) => ({
@@ -70,8 +70,8 @@ const MonitoringPage = () => {
 
   const fetchHistoricalData = async () => {
     try {
-      const moistureResponse = await axios.get('http://localhost:8080/api/sensor-data/moisture');
-      const environmentResponse = await axios.get('http://localhost:8080/api/sensor-data/environment');
+      const moistureResponse = await axios.get('http://localhost:8080/api/sensor-data/moisture?points=300');
+      const environmentResponse = await axios.get('http://localhost:8080/api/sensor-data/environment?points=300');
 
       const formattedMoistureData = moistureResponse.data.map((item) => ({
         time: format(new Date(item.timestamp), 'HH:mm'),
@@ -15,15 +15,66 @@ DHT dht(DHTPIN, DHTTYPE);
 
 const char* ssid = "Tashen’s iPhone";
 const char* password = "gal ibba";
-const char* serverUrl = "http://172.20.10.2:8080/api/sensor-data/save";
-const char* statusUrl = "http://172.20.10.2:8080/api/sensor-data/status";
-const char* MotorIRStatusUrl = "http://172.20.10.2:8080/api/sensor-data/MotorIR-status"; // New URL for heating status
+// Single control poll: posts the reading and returns collection + Motor/IR state and any pending commands
+const char* syncUrl = "http://172.20.10.2:8080/api/sensor-data/device/sync";
+const char* commandAckUrl = "http://172.20.10.2:8080/api/sensor-data/device/commands/";
+
+// Last control state received from the backend, reused when it answers 304 Not Modified
+String lastEtag = "";
+bool isCollecting = false;
+bool isMotorIROn = true;
+
+// Each reading is numbered so the backend can drop a resend after a lost response
+uint32_t bootId = 0;
+uint32_t readingSeq = 0;
+String unsentReading = "";
+
+// Name of this dryer on the backend (control state, commands, history); leave empty to use the board's MAC address.
+// Also sent as X-Device-Id so the backend rate-limits each board on its own, even when several share one NAT address
+const char* configuredDeviceId = "";
+String deviceId = "";
 
 
 // Timer Variables
 unsigned long overheatStartTime = 0;  // Stores the time when temp > 35°C
 bool overheatTimerActive = false;     // Flag to track if timer is running
 
+void acknowledgeCommand(long commandId) {
+    HTTPClient ackHttp;
+    ackHttp.begin(String(commandAckUrl) + String(commandId) + "/ack?deviceId=" + deviceId);
+    ackHttp.addHeader("X-Device-Id", deviceId);
+    ackHttp.POST("");
+    ackHttp.end();
+}
+
+// Acts on the commands returned with a sync and acknowledges them. The collecting and Motor/IR flags come from
+// the state in the same response, which already includes every command; a stop only cuts the heater right away.
+void applyCommands(String body) {
+    int commandsStart = body.indexOf("\"commands\":[");
+    if (commandsStart < 0) {
+        return;
+    }
+    body = body.substring(commandsStart);
+    if (body.indexOf("\"type\":\"EMERGENCY_STOP\"") >= 0) {
+        digitalWrite(SSR_PIN, LOW); // Turn heating OFF right away
+        Serial.println("Motor and IR turned OFF via emergency stop command");
+    }
+    if (body.indexOf("\"type\":\"STOP\"") >= 0) {
+        digitalWrite(SSR_PIN, LOW);
+        overheatTimerActive = false;
+        Serial.println("Stop command received. Turning Motor and IR OFF.");
+    }
+    if (body.indexOf("\"type\":\"START\"") >= 0) {
+        Serial.println("Start command received");
+    }
+
+    int position = 0;
+    while ((position = body.indexOf("\"id\":", position)) >= 0) {
+        position += 5;
+        acknowledgeCommand(body.substring(position).toInt());
+    }
+}
+
 void setup() {
     Serial.begin(115200);
 
@@ -34,10 +85,14 @@ void setup() {
         Serial.println("Connecting to WiFi...");
     }
     Serial.println("Connected to WiFi");
+    deviceId = strlen(configuredDeviceId) > 0 ? String(configuredDeviceId) : WiFi.macAddress();
 
     // Initialize DHT Sensor
     dht.begin();
 
+    // Random per power-up, so the backend can tell a reboot from a resend
+    bootId = esp_random();
+
     // Configure SSR as output and turn heating ON initially
     pinMode(SSR_PIN, OUTPUT);
     digitalWrite(SSR_PIN, HIGH);
@@ -45,96 +100,103 @@ void setup() {
 
 void loop() {
     if (WiFi.status() == WL_CONNECTED) {
-        HTTPClient http;
-        http.begin(statusUrl);
-        int statusResponse = http.GET();
-
-        if (statusResponse > 0) {
-            String status = http.getString();
-            if (status == "true") {  // System active
-                float temperature = dht.readTemperature();
-                float humidity = dht.readHumidity();
-                int moistureValue = analogRead(MOISTURE_PIN);
-                int moisturePercentage = map(moistureValue, 4095, 1000, 0, 100);
-                moisturePercentage = constrain(moisturePercentage, 0, 100);
-
-                // Check heating status from backend
-                HTTPClient MotorIRHttp;
-                MotorIRHttp.begin(MotorIRStatusUrl);
-                int MotorIRResponse = MotorIRHttp.GET();
-
-                if (MotorIRResponse > 0) {
-                    String MotorIRStatus = MotorIRHttp.getString();
-                    if (MotorIRStatus == "false") {
-                        digitalWrite(SSR_PIN, LOW); // Turn heating OFF
-                        Serial.println("Motor and IR turned OFF via emergency stop");
-                    } else {
-                        // Heating Control Logic
-                        if (temperature > 35) {
-                            if (!overheatTimerActive) {
-                                overheatTimerActive = true;
-                                overheatStartTime = millis(); // Start 10s timer
-                                Serial.println("Overheat detected! Starting 10s timer...");
-                            } else if (millis() - overheatStartTime >= 10000) {  
-                                digitalWrite(SSR_PIN, LOW);  // Turn heating OFF after 10s
-                                Serial.println("Motor and IR OFF after sustained high temperature!");
-                            }
-                        } else {
-                            if (overheatTimerActive) {
-                                Serial.println("Temperature back to normal! Timer canceled.");
-                                overheatTimerActive = false;  // Cancel timer
-                            }
-                            digitalWrite(SSR_PIN, HIGH); // Keep Motor and IR ON
-                            Serial.println("Motor and IR ON");
-                        }
-                    }
-                } else {
-                    Serial.println("Error checking Motor and IR status");
-                }
-
-                MotorIRHttp.end();
-
-                // Log sensor data
-                Serial.print("Sending Data -> Temp: ");
-                Serial.print(temperature);
-                Serial.print(" °C, Hum: ");
-                Serial.print(humidity);
-                Serial.print(" %, Moisture: ");
-                Serial.println(moisturePercentage);
-
-                // Prepare JSON payload
-                String jsonData = "{\"temperature\":" + String(temperature) +
-                                ", \"humidity\":" + String(humidity) +
-                                ", \"moisture\":" + String(moisturePercentage) + "}";
+        float temperature = dht.readTemperature();
+        float humidity = dht.readHumidity();
+        int moistureValue = analogRead(MOISTURE_PIN);
+        int moisturePercentage = map(moistureValue, 4095, 1000, 0, 100);
+        moisturePercentage = constrain(moisturePercentage, 0, 100);
+
+        // Prepare JSON payload; a reading whose sync failed is resent unchanged with its original seq
+        String jsonData = unsentReading;
+        if (jsonData.length() == 0) {
+            readingSeq++;
+            jsonData = "{\"temperature\":" + String(temperature) +
+                        ", \"humidity\":" + String(humidity) +
+                        ", \"moisture\":" + String(moisturePercentage) +
+                        ", \"seq\":" + String(readingSeq) +
+                        ", \"boot\":" + String(bootId) +
+                        ", \"deviceId\":\"" + deviceId + "\"}";
+        }
 
-                // Send data to the server
-                HTTPClient postHttp;
-                postHttp.begin(serverUrl);
-                postHttp.addHeader("Content-Type", "application/json");
+        // One request per loop: the backend stores the reading while collecting and returns the control state
+        HTTPClient http;
+        http.begin(syncUrl);
+        http.addHeader("Content-Type", "application/json");
+        http.addHeader("X-Device-Id", deviceId);
+        if (lastEtag.length() > 0) {
+            http.addHeader("If-None-Match", lastEtag);
+        }
+        const char* headerKeys[] = {"ETag", "Retry-After"};
+        http.collectHeaders(headerKeys, 2);
+
+        int syncResponse = http.POST(jsonData);
+        String syncBody = "";
+
+        if (syncResponse == 200) {
+            String body = http.getString();
+            isCollecting = body.indexOf("\"collecting\":true") >= 0;
+            isMotorIROn = body.indexOf("\"motorIROn\":true") >= 0;
+            lastEtag = http.header("ETag");
+            syncBody = body;
+        } else if (syncResponse != 304) {  // 304: state unchanged, keep the cached values
+            Serial.print("Error syncing with backend: ");
+            Serial.println(syncResponse);
+            // Lost connection, server trouble or throttled: try this reading again; a rejected reading is dropped
+            bool retry = syncResponse <= 0 || syncResponse >= 500 || syncResponse == 429;
+            unsentReading = retry ? jsonData : "";
+            if (syncResponse == 429) {  // Backend is shedding load: wait as long as it asks before the next post
+                long retryAfter = http.header("Retry-After").toInt();
+                delay(constrain(retryAfter, 1, 60) * 1000);
+            }
+            http.end();
+            delay(5000);
+            return;
+        }
+        unsentReading = "";
 
-                int httpResponseCode = postHttp.POST(jsonData);
+        http.end();
+        applyCommands(syncBody);
 
-                if (httpResponseCode > 0) {
-                    Serial.println("Data sent successfully");
+        if (isCollecting) {  // System active
+            if (!isMotorIROn) {
+                digitalWrite(SSR_PIN, LOW); // Turn heating OFF
+                Serial.println("Motor and IR turned OFF via emergency stop");
+            } else {
+                // Heating Control Logic
+                if (temperature > 35) {
+                    if (!overheatTimerActive) {
+                        overheatTimerActive = true;
+                        overheatStartTime = millis(); // Start 10s timer
+                        Serial.println("Overheat detected! Starting 10s timer...");
+                    } else if (millis() - overheatStartTime >= 10000) {
+                        digitalWrite(SSR_PIN, LOW);  // Turn heating OFF after 10s
+                        Serial.println("Motor and IR OFF after sustained high temperature!");
+                    }
                 } else {
-                    Serial.print("Error sending POST request: ");
-                    Serial.println(httpResponseCode);
+                    if (overheatTimerActive) {
+                        Serial.println("Temperature back to normal! Timer canceled.");
+                        overheatTimerActive = false;  // Cancel timer
+                    }
+                    digitalWrite(SSR_PIN, HIGH); // Keep Motor and IR ON
+                    Serial.println("Motor and IR ON");
                 }
-
-                postHttp.end();
-            } else {
-                Serial.println("Sensor is stopped. Turning Motor and IR OFF.");
-                digitalWrite(SSR_PIN, LOW); // Turn OFF Motor and IR when system is inactive
-                overheatTimerActive = false; // Reset timer flag
             }
+
+            // Log sensor data
+            Serial.print("Sent Data -> Temp: ");
+            Serial.print(temperature);
+            Serial.print(" °C, Hum: ");
+            Serial.print(humidity);
+            Serial.print(" %, Moisture: ");
+            Serial.println(moisturePercentage);
         } else {
-            Serial.println("Error checking status");
+            Serial.println("Sensor is stopped. Turning Motor and IR OFF.");
+            digitalWrite(SSR_PIN, LOW); // Turn OFF Motor and IR when system is inactive
+            overheatTimerActive = false; // Reset timer flag
         }
-
-        http.end();
+        delay(5000);  // Wait before the next sync
     } else {
         Serial.println("WiFi Disconnected!");
+        delay(5000);
     }
-
-    delay(5000);  // Wait before the next data check
-}
\ No newline at end of file
+}